@@ -0,0 +1,115 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Базовые замеры горячих путей {@link Board}. Поле квадратное, size x size,
+ * плотность мин задаётся долей клеток. Доска 4096x4096 вместе со смежностью
+ * занимает около полугигабайта, поэтому куча форков увеличена.
+ * <p>
+ * Методы reveal и openAll меняют поле, поэтому перед каждым вызовом доска
+ * пересоздаётся из того же зерна вне замера. Для маленьких полей накладные
+ * расходы JMH на такой вызов сравнимы с самим замером.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class BoardBenchmark {
+
+    @State(Scope.Thread)
+    public static class BoardState {
+        @Param({"8", "64", "512", "4096"})
+        int size;
+
+        @Param({"0.05", "0.15", "0.30"})
+        double density;
+
+        int mines;
+        long seed;
+        Board board;
+
+        @Setup(Level.Trial)
+        public void create() {
+            mines = (int) (size * size * density);
+            board = new Board(size, size, mines, 42);
+            board.generate(size / 2, size / 2);
+        }
+    }
+
+    // Свежая доска перед каждым вызовом и клетка, с которой начинается каскад
+    @State(Scope.Thread)
+    public static class FreshBoardState extends BoardState {
+        int startCell;
+
+        @Setup(Level.Invocation)
+        public void reset() {
+            board.resetBoard(42);
+            board.generate(size / 2, size / 2);
+            startCell = 0;
+            for (int i = 0; i < board.getCellCount(); i++) {
+                if (!board.hasMine(i) && board.getNeighborMineCount(i) == 0) {
+                    startCell = i;
+                    break;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Board construct(BoardState state) {
+        return new Board(state.size, state.size, state.mines, state.seed++);
+    }
+
+    // Расстановка мин при первом открытии вместе с очисткой поля
+    @Benchmark
+    public void generate(BoardState state) {
+        state.board.resetBoard(state.seed++);
+        state.board.generate(state.size / 2, state.size / 2);
+    }
+
+    @Benchmark
+    public void assignNeighborMineCounts(BoardState state) {
+        state.board.assignNeighborMineCounts();
+    }
+
+    @Benchmark
+    public void getNeighborOffsets(BoardState state, Blackhole blackhole) {
+        Board board = state.board;
+        for (int row = 0; row < board.getHeight(); row++) {
+            blackhole.consume(board.getNeighborOffsets(row));
+        }
+    }
+
+    @Benchmark
+    public RevealResult reveal(FreshBoardState state) {
+        Board board = state.board;
+        return board.reveal(state.startCell / board.getWidth(), state.startCell % board.getWidth());
+    }
+
+    @Benchmark
+    public Board openAll(FreshBoardState state) {
+        state.board.openAll();
+        return state.board;
+    }
+
+    @Benchmark
+    public void resetBoard(BoardState state) {
+        state.board.resetBoard(state.seed++);
+    }
+}
@@ -0,0 +1,103 @@
+package app;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.ImagePattern;
+import metrics.AssetLoadEvent;
+import metrics.Metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Общий кэш изображений. Каждый спрайт декодируется один раз из classpath, все спрайты
+ * клеток упаковываются в один атлас, а на каждое состояние клетки приходится один
+ * разделяемый {@link ImagePattern}, вырезающий свой участок атласа.
+ */
+final class Assets {
+    enum Sprite {
+        ONE("1.jpg"), TWO("2.jpg"), THREE("3.jpg"), FOUR("4.jpg"), FIVE("5.jpg"), SIX("6.jpg"),
+        BOMB("bomb.png"), EXPLODED("exploded.png"), FLAG("flag.png");
+
+        private final String file;
+
+        Sprite(String file) {
+            this.file = file;
+        }
+    }
+
+    static final int SPRITE_SIZE = 64;
+
+    private static final Sprite[] SPRITES = Sprite.values();
+    private static WritableImage atlas;
+    private static ImagePattern[] patterns;
+    private static Image icon;
+
+    private Assets() {
+    }
+
+    static ImagePattern pattern(Sprite sprite) {
+        if (patterns == null) {
+            loadAtlas();
+        }
+        return patterns[sprite.ordinal()];
+    }
+
+    static ImagePattern number(int neighborMineCount) {
+        return pattern(SPRITES[neighborMineCount - 1]);
+    }
+
+    static Image atlas() {
+        if (atlas == null) {
+            loadAtlas();
+        }
+        return atlas;
+    }
+
+    static Image icon() {
+        if (icon == null) {
+            icon = load("icon.png", 0);
+        }
+        return icon;
+    }
+
+    private static void loadAtlas() {
+        WritableImage image = new WritableImage(SPRITE_SIZE * SPRITES.length, SPRITE_SIZE);
+        ImagePattern[] created = new ImagePattern[SPRITES.length];
+
+        for (Sprite sprite : SPRITES) {
+            int x = sprite.ordinal() * SPRITE_SIZE;
+            PixelReader reader = load(sprite.file, SPRITE_SIZE).getPixelReader();
+            image.getPixelWriter().setPixels(x, 0, SPRITE_SIZE, SPRITE_SIZE, reader, 0, 0);
+            // Пропорциональный шаблон: атлас растягивается на SPRITES.length клеток и сдвигается к нужному спрайту
+            created[sprite.ordinal()] = new ImagePattern(image, -sprite.ordinal(), 0, SPRITES.length, 1, true);
+        }
+
+        atlas = image;
+        patterns = created;
+    }
+
+    private static Image load(String file, int size) {
+        long started = Metrics.ENABLED ? System.nanoTime() : 0;
+        AssetLoadEvent event = new AssetLoadEvent();
+        event.begin();
+        try (InputStream stream = Assets.class.getResourceAsStream("/images/" + file)) {
+            if (stream == null) {
+                throw new IllegalStateException("Изображение не найдено: " + file);
+            }
+            return size > 0 ? new Image(stream, size, size, false, true) : new Image(stream);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось загрузить изображение " + file, e);
+        } finally {
+            if (Metrics.ENABLED) {
+                Metrics.ASSET_LOAD_NANOS.record(System.nanoTime() - started);
+            }
+            if (event.shouldCommit()) {
+                event.file = file;
+                event.size = size;
+                event.commit();
+            }
+        }
+    }
+}
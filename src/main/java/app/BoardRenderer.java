@@ -0,0 +1,29 @@
+package app;
+
+interface BoardRenderer {
+    // Полностью перестраивает изображение поля
+    void drawBoard();
+
+    void updateTile(int cell);
+
+    // Перерисовывает все клетки, которые сейчас видны, и возвращает их число
+    default int updateAllTiles(int cellCount) {
+        for (int cell = 0; cell < cellCount; cell++) {
+            updateTile(cell);
+        }
+        return cellCount;
+    }
+
+    // Вызывается после каждого пакета обновлений
+    default void flush() {
+    }
+
+    // Перевод координат на панели поля в координаты сетки (с учётом прокрутки и масштаба)
+    default double boardX(double x) {
+        return x;
+    }
+
+    default double boardY(double y) {
+        return y;
+    }
+}
@@ -0,0 +1,246 @@
+package app;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Rectangle;
+import model.Board;
+
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+import static app.HexGeometry.*;
+
+/**
+ * Отрисовка поля на одном {@link Canvas} размером с окно просмотра. Рисуются только
+ * видимые клетки с небольшим запасом, поэтому память и время кадра зависят от размера
+ * окна, а не поля. Поле прокручивается колесом или перетаскиванием, масштаб меняется
+ * колесом с зажатым Ctrl. При сильном уменьшении клетки рисуются попиксельно простыми
+ * цветами вместо изображений.
+ */
+final class CanvasBoardRenderer implements BoardRenderer {
+    private static final double MIN_ZOOM = 0.02;
+    private static final double MAX_ZOOM = 4;
+    private static final double DETAILED_MIN_RADIUS = 8; // радиус клетки на экране, ниже которого включаются простые цвета
+    private static final int MARGIN_CELLS = 1;
+
+    private final Board board;
+    private final Pane boardPane;
+    private final IntFunction<Paint> fills;
+    private final IntUnaryOperator colors;
+    private final Canvas canvas;
+    private final double[] xs = new double[6];
+    private final double[] ys = new double[6];
+
+    private double zoom = 1;
+    private double offsetX;
+    private double offsetY;
+    private double dragX;
+    private double dragY;
+    private boolean pixelsDirty;
+    private WritableImage pixelImage;
+    private int[] pixels;
+
+    CanvasBoardRenderer(Board board, Pane boardPane, IntFunction<Paint> fills, IntUnaryOperator colors) {
+        this.board = board;
+        this.boardPane = boardPane;
+        this.fills = fills;
+        this.colors = colors;
+        canvas = new Canvas();
+        canvas.setMouseTransparent(true);
+        canvas.widthProperty().bind(boardPane.widthProperty());
+        canvas.heightProperty().bind(boardPane.heightProperty());
+        canvas.widthProperty().addListener((observable, oldValue, newValue) -> redraw());
+        canvas.heightProperty().addListener((observable, oldValue, newValue) -> redraw());
+
+        Rectangle clip = new Rectangle();
+        clip.widthProperty().bind(boardPane.widthProperty());
+        clip.heightProperty().bind(boardPane.heightProperty());
+        boardPane.setClip(clip);
+        boardPane.setMinSize(0, 0);
+
+        boardPane.setOnScroll(event -> {
+            if (event.isControlDown()) {
+                zoomAt(event.getX(), event.getY(), Math.pow(1.0015, event.getDeltaY()));
+            } else {
+                panBy(event.getDeltaX(), event.getDeltaY());
+            }
+        });
+        boardPane.setOnMousePressed(event -> {
+            dragX = event.getX();
+            dragY = event.getY();
+        });
+        boardPane.setOnMouseDragged(event -> {
+            if (event.getButton() == MouseButton.PRIMARY) {
+                panBy(event.getX() - dragX, event.getY() - dragY);
+                dragX = event.getX();
+                dragY = event.getY();
+            }
+        });
+    }
+
+    @Override
+    public void drawBoard() {
+        boardPane.getChildren().setAll(canvas);
+        redraw();
+    }
+
+    @Override
+    public void updateTile(int cell) {
+        if (isPixelMode()) {
+            pixelsDirty = true;
+            return;
+        }
+
+        int width = board.getWidth();
+        int row = cell / width;
+        int column = cell % width;
+        if (row >= firstVisibleRow() && row <= lastVisibleRow()
+                && column >= firstVisibleColumn() && column <= lastVisibleColumn()) {
+            paintHex(canvas.getGraphicsContext2D(), cell, row, column);
+        }
+    }
+
+    // Холст хранит только окно просмотра, поэтому "все клетки" - это видимые клетки
+    @Override
+    public int updateAllTiles(int cellCount) {
+        return redraw();
+    }
+
+    @Override
+    public void flush() {
+        if (pixelsDirty) {
+            paintPixels();
+        }
+    }
+
+    @Override
+    public double boardX(double x) {
+        return x / zoom + offsetX;
+    }
+
+    @Override
+    public double boardY(double y) {
+        return y / zoom + offsetY;
+    }
+
+    private void panBy(double dx, double dy) {
+        offsetX -= dx / zoom;
+        offsetY -= dy / zoom;
+        redraw();
+    }
+
+    private void zoomAt(double x, double y, double factor) {
+        double anchorX = boardX(x);
+        double anchorY = boardY(y);
+        zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        offsetX = anchorX - x / zoom;
+        offsetY = anchorY - y / zoom;
+        redraw();
+    }
+
+    private void clampOffsets() {
+        double maxX = boardWidth(board.getWidth()) - canvas.getWidth() / zoom;
+        double maxY = boardHeight(board.getHeight()) - canvas.getHeight() / zoom;
+        offsetX = Math.max(0, Math.min(offsetX, maxX));
+        offsetY = Math.max(0, Math.min(offsetY, maxY));
+    }
+
+    private boolean isPixelMode() {
+        return r * zoom < DETAILED_MIN_RADIUS;
+    }
+
+    // Возвращает число нарисованных клеток (в попиксельном режиме - число пикселей)
+    private int redraw() {
+        clampOffsets();
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        if (isPixelMode()) {
+            paintPixels();
+            return pixels == null ? 0 : pixels.length;
+        }
+
+        int painted = 0;
+        for (int row = firstVisibleRow(), lastRow = lastVisibleRow(); row <= lastRow; row++) {
+            for (int column = firstVisibleColumn(), lastColumn = lastVisibleColumn(); column <= lastColumn; column++) {
+                paintHex(gc, board.getCellIndex(row, column), row, column);
+                painted++;
+            }
+        }
+        return painted;
+    }
+
+    private void paintHex(GraphicsContext gc, int cell, int row, int column) {
+        corners(tileX(row, column), tileY(row), xs, ys);
+        for (int i = 0; i < 6; i++) {
+            xs[i] = (xs[i] - offsetX) * zoom;
+            ys[i] = (ys[i] - offsetY) * zoom;
+        }
+        gc.setFill(fills.apply(cell));
+        gc.fillPolygon(xs, ys, 6);
+        gc.setStroke(Color.BLACK);
+        gc.setLineWidth(2 * zoom);
+        gc.strokePolygon(xs, ys, 6);
+    }
+
+    // Каждый пиксель окна получает цвет клетки под ним; скошенные грани шестиугольников
+    // на таком масштабе неразличимы, поэтому клетка определяется по прямоугольной сетке строк
+    private void paintPixels() {
+        pixelsDirty = false;
+        int width = (int) canvas.getWidth();
+        int height = (int) canvas.getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (pixelImage == null || pixelImage.getWidth() != width || pixelImage.getHeight() != height) {
+            pixelImage = new WritableImage(width, height);
+            pixels = new int[width * height];
+        }
+
+        int rows = board.getHeight();
+        int columns = board.getWidth();
+        for (int y = 0; y < height; y++) {
+            int row = (int) Math.floor((boardY(y) - Y_OFFSET + r * 0.5) / (TILE_HEIGHT * 0.75));
+            int base = y * width;
+            for (int x = 0; x < width; x++) {
+                int column = row < 0 ? -1 : (int) Math.floor((boardX(x) - X_OFFSET - (row % 2) * n) / TILE_WIDTH);
+                if (row < 0 || row >= rows || column < 0 || column >= columns) {
+                    pixels[base + x] = 0;
+                } else {
+                    pixels[base + x] = colors.applyAsInt(row * columns + column);
+                }
+            }
+        }
+
+        pixelImage.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, width, height);
+        gc.drawImage(pixelImage, 0, 0);
+    }
+
+    private int firstVisibleRow() {
+        int row = (int) Math.floor((offsetY - Y_OFFSET - r * 1.5) / (TILE_HEIGHT * 0.75));
+        return Math.max(0, row - MARGIN_CELLS);
+    }
+
+    private int lastVisibleRow() {
+        int row = (int) Math.ceil((boardY(canvas.getHeight()) - Y_OFFSET + r * 0.5) / (TILE_HEIGHT * 0.75));
+        return Math.min(board.getHeight() - 1, row + MARGIN_CELLS);
+    }
+
+    private int firstVisibleColumn() {
+        int column = (int) Math.floor((offsetX - X_OFFSET - TILE_WIDTH) / TILE_WIDTH);
+        return Math.max(0, column - MARGIN_CELLS);
+    }
+
+    private int lastVisibleColumn() {
+        int column = (int) Math.ceil((boardX(canvas.getWidth()) - X_OFFSET) / TILE_WIDTH);
+        return Math.min(board.getWidth() - 1, column + MARGIN_CELLS);
+    }
+}
@@ -2,19 +2,26 @@ package app;
 
 import javafx.application.Platform;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.input.MouseButton;
 import javafx.stage.Stage;
+import journal.MoveJournal;
+import journal.MoveType;
+import metrics.ClickEvent;
+import metrics.Metrics;
 import model.*;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Optional;
 
 public class Controller {
     private final Board board;
     private final View view;
     private final Label mineCountLabel;
+    private Path journalDirectory;
+    private MoveJournal journal;
+    private long clickStarted; // 0, если время хода уже записано
+    private ClickEvent clickEvent;
 
     public Controller(Board board, View view, Label mineCountLabel) {
         this.board = board;
@@ -23,84 +30,193 @@ public class Controller {
         view.setController(this);
     }
 
-    public void handleClick(int row, int col, MouseButton button) throws FileNotFoundException {
+    public void handleClick(int row, int col, MouseButton button) {
+        if (board.isGameOver()) {
+            return;
+        }
+        if (Metrics.ENABLED) {
+            clickStarted = System.nanoTime();
+        }
+        clickEvent = new ClickEvent();
+        clickEvent.begin();
+        clickEvent.row = row;
+        clickEvent.column = col;
+        clickEvent.button = button.name();
         Tile tile = board.getTile(row, col);
 
         if (button == MouseButton.PRIMARY) {
             if (!tile.isOpened()) {
-                openTilesRecursively(row, col);
-
-                if (tile.hasMine()) {
-                    view.showAll();
-                    view.explodedMine(row, col);
-                    showGameOverDialog("Вы проиграли!");
-                }
-
-                if (board.getResult()) {
-                    showGameOverDialog("Поздравляем, вы выиграли!");
-                }
+                record(MoveType.OPEN, row, col);
+                afterMove(board.reveal(row, col).getOpenedCells());
+            }
+        } else if (button == MouseButton.MIDDLE) {
+            if (tile.isOpened()) {
+                record(MoveType.CHORD, row, col);
+                afterMove(board.chord(row, col).getOpenedCells());
             }
         } else if (button == MouseButton.SECONDARY) {
             if (!tile.isOpened() && !tile.isFlagged()) {
+                record(MoveType.FLAG, row, col);
                 board.flagTile(row, col);
                 view.updateTile(row, col);
             } else {
+                record(MoveType.UNFLAG, row, col);
                 board.unflagTile(row, col);
                 view.updateTile(row, col);
             }
-            int flaggedMinesCount = board.getFlaggedTilesCount();
-            int remainingMines = board.getMines() - flaggedMinesCount;
-            mineCountLabel.setText("Бомб осталось: " + remainingMines);
-            if (board.getResult()) {
-                showGameOverDialog("Поздравляем, вы выиграли!");
-            }
+            updateMineCount();
         }
+        finishClick();
     }
 
-    private void openTilesRecursively(int row, int col) throws FileNotFoundException {
-        Tile tile = board.getTile(row, col);
+    // Время хода пишется до диалога конца игры, иначе в него попадёт ожидание игрока
+    private void finishClick() {
+        if (clickEvent != null) {
+            clickEvent.commit();
+            clickEvent = null;
+        }
+        if (Metrics.ENABLED && clickStarted != 0) {
+            Metrics.CLICK_NANOS.record(System.nanoTime() - clickStarted);
+            view.markInput(clickStarted);
+            clickStarted = 0;
+        }
+    }
 
-        if (tile.isOpened() || tile.isFlagged()) {
+    // Отмена перерисовывает только клетки отменённого действия
+    public void undo() {
+        if (!board.canUndo()) {
             return;
         }
+        boolean wasOver = board.isGameOver();
+        record(MoveType.UNDO, 0, 0);
+        int[] changed = board.undo();
+        if (wasOver) {
+            view.hideAll();
+        }
+        view.updateTiles(changed);
+        updateMineCount();
+    }
 
-        board.openTile(row, col);
-        view.updateTile(row, col);
+    public void redo() {
+        if (!board.canRedo() || board.isGameOver()) {
+            return;
+        }
+        record(MoveType.REDO, 0, 0);
+        afterMove(board.redo());
+        updateMineCount();
+    }
 
-        if (tile.getNeighborMineCount() == 0) {
-            // рекурсивно открываем соседние клетки без мин
-            int[][] neighborOffsets = board.getNeighborOffsets(row);
+    private void afterMove(int[] changedCells) {
+        view.updateTiles(changedCells);
+        finishClick();
+        handleGameOver(changedCells);
+    }
 
-            for (int[] offset : neighborOffsets) {
-                int newRow = row + offset[0];
-                int newColumn = col + offset[1];
+    /**
+     * Показывает доску, восстановленную из сохранения: клетки рисуются по модели,
+     * а законченная партия сразу получает диалог конца игры.
+     */
+    public void restoreView() {
+        view.updateAllTiles();
+        updateMineCount();
+        if (board.isGameOver()) {
+            // Какая мина взорвалась, в сохранении нет: подсвечивается первая открытая
+            int exploded = 0;
+            while (exploded < board.getCellCount() && !(board.hasMine(exploded) && board.isOpened(exploded))) {
+                exploded++;
+            }
+            int[] changed = exploded < board.getCellCount() ? new int[]{exploded} : new int[0];
+            // Диалог ждёт игрока, поэтому показывается после того, как окно открыто
+            Platform.runLater(() -> handleGameOver(changed));
+        }
+    }
 
-                if (board.isValidPosition(newRow, newColumn)) {
-                    openTilesRecursively(newRow, newColumn);
+    private void handleGameOver(int[] changedCells) {
+        if (board.getState() == GameState.LOST) {
+            view.showAll();
+            for (int cell : changedCells) {
+                if (board.hasMine(cell) && board.isOpened(cell)) {
+                    view.explodedMine(cell / board.getWidth(), cell % board.getWidth());
+                    break;
                 }
             }
+            showGameOverDialog("Вы проиграли!", board.canUndo());
+        } else if (board.getState() == GameState.WON) {
+            showGameOverDialog("Поздравляем, вы выиграли!", false);
+        }
+    }
+
+    private void updateMineCount() {
+        int flaggedMinesCount = board.getFlaggedTilesCount();
+        int remainingMines = board.getMines() - flaggedMinesCount;
+        mineCountLabel.setText("Бомб осталось: " + remainingMines);
+    }
+
+    /**
+     * Включает запись ходов: каждая партия пишется в отдельный файл в этом каталоге.
+     */
+    public void setJournalDirectory(Path directory) {
+        journalDirectory = directory;
+        startJournal();
+    }
+
+    private void startJournal() {
+        closeJournal();
+        if (journalDirectory == null) {
+            return;
         }
+        Path path = journalDirectory.resolve("game-" + System.currentTimeMillis() + ".hxmj");
+        try {
+            journal = MoveJournal.create(path, board);
+        } catch (IOException e) {
+            // Без журнала игра продолжается, запись просто отключается
+            System.err.println("Не удалось создать журнал ходов " + path + ": " + e.getMessage());
+            journalDirectory = null;
+        }
+    }
+
+    public void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Не удалось дописать журнал ходов: " + e.getMessage());
+        }
+        journal = null;
     }
 
-    private void showGameOverDialog(String message) throws FileNotFoundException {
+    private void record(MoveType type, int row, int col) {
+        if (journal != null) {
+            journal.record(type, row, col);
+        }
+    }
+
+    private void showGameOverDialog(String message, boolean canUndo) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Игра окончена");
         alert.setHeaderText(message);
         alert.setContentText("Хотите начать игру заново?");
-        FileInputStream inputStream = new FileInputStream("src/main/java/images/icon.png");
-        Image icon = new Image(inputStream);
         Stage stage = (Stage) alert.getDialogPane().getScene().getWindow();
-        stage.getIcons().add(icon);
+        stage.getIcons().add(Assets.icon());
 
         ButtonType buttonTypeYes = new ButtonType("Да");
         ButtonType buttonTypeNo = new ButtonType("Нет");
+        ButtonType buttonTypeUndo = new ButtonType("Отменить ход");
         alert.getButtonTypes().setAll(buttonTypeYes, buttonTypeNo);
+        if (canUndo) {
+            alert.getButtonTypes().add(buttonTypeUndo);
+        }
 
         Optional<ButtonType> result = alert.showAndWait();
 
-        if (result.isPresent() && result.get() == buttonTypeYes) {
+        if (result.isPresent() && result.get() == buttonTypeUndo) {
+            undo();
+        } else if (result.isPresent() && result.get() == buttonTypeYes) {
             // Начать новую игру
             board.resetBoard();
+            startJournal();
             mineCountLabel.setText("Бомб осталось: " + board.getMines());
             view.drawBoard();
         } else {
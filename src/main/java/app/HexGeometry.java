@@ -0,0 +1,85 @@
+package app;
+
+/**
+ * Геометрия поля: шестиугольники с вершиной вверх, нечётные строки сдвинуты вправо на n.
+ */
+public final class HexGeometry {
+    static final double r = 22; // внутренний радиус от центра шестиугольника до внешнего угла
+    static final double n = Math.sqrt(r * r * 0.75); // внутренний радиус от центра шестиугольника до середины оси
+    static final double TILE_HEIGHT = 2 * r;
+    static final double TILE_WIDTH = 2 * n;
+    static final double X_OFFSET = 40;
+    static final double Y_OFFSET = 40;
+
+    private HexGeometry() {
+    }
+
+    // Левая верхняя точка боковой грани клетки, от неё строятся углы шестиугольника
+    static double tileX(int row, int column) {
+        return column * TILE_WIDTH + (row % 2) * n + X_OFFSET;
+    }
+
+    static double tileY(int row) {
+        return row * TILE_HEIGHT * 0.75 + Y_OFFSET;
+    }
+
+    // Центр шестиугольника клетки: {x, y}
+    public static double[] cellCenter(int row, int column) {
+        return new double[]{tileX(row, column) + n, tileY(row) + r * 0.5};
+    }
+
+    static double boardWidth(int columns) {
+        return X_OFFSET + columns * TILE_WIDTH + n + 1;
+    }
+
+    static double boardHeight(int rows) {
+        return Y_OFFSET + (rows - 1) * TILE_HEIGHT * 0.75 + r * 1.5 + 1;
+    }
+
+    static void corners(double x, double y, double[] xs, double[] ys) {
+        xs[0] = x;
+        ys[0] = y;
+        xs[1] = x;
+        ys[1] = y + r;
+        xs[2] = x + n;
+        ys[2] = y + r * 1.5;
+        xs[3] = x + TILE_WIDTH;
+        ys[3] = y + r;
+        xs[4] = x + TILE_WIDTH;
+        ys[4] = y;
+        xs[5] = x + n;
+        ys[5] = y - r * 0.5;
+    }
+
+    /**
+     * Возвращает индекс клетки под точкой (x, y) или -1, если точка вне поля.
+     * Переводит точку в дробные осевые координаты и округляет до ближайшего шестиугольника.
+     */
+    public static int cellAt(double x, double y, int rows, int columns) {
+        double px = x - (X_OFFSET + n);
+        double py = y - (Y_OFFSET + r * 0.5);
+
+        double q = (Math.sqrt(3) / 3 * px - py / 3) / r;
+        double s = (2.0 / 3 * py) / r;
+        double t = -q - s;
+
+        long rq = Math.round(q);
+        long rs = Math.round(s);
+        long rt = Math.round(t);
+        double dq = Math.abs(rq - q);
+        double ds = Math.abs(rs - s);
+        double dt = Math.abs(rt - t);
+        if (dq > ds && dq > dt) {
+            rq = -rs - rt;
+        } else if (ds > dt) {
+            rs = -rq - rt;
+        }
+
+        long row = rs;
+        long column = rq + (rs - (rs & 1)) / 2;
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            return -1;
+        }
+        return (int) (row * columns + column);
+    }
+}
@@ -2,14 +2,23 @@ package app;
 
 import javafx.application.Application;
 import javafx.geometry.Pos;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.*;
+import javafx.stage.FileChooser;
+import javafx.stage.Screen;
 import javafx.stage.Stage;
+import metrics.Metrics;
 import model.Board;
+import model.BoardSnapshot;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Optional;
 
 public class MinesweeperApp extends Application {
@@ -25,19 +34,34 @@ public class MinesweeperApp extends Application {
     private static final int HARD_WIDTH = 30;
     private static final int HARD_MINES = 99;
 
+    private static final int MAX_CUSTOM_WIDTH = 4096;
+    private static final int MAX_CUSTOM_HEIGHT = 4096;
+    // Поля крупнее рисуются на холсте с окном просмотра, узел на клетку для них слишком дорог
+    private static final int NODE_RENDERER_MAX_CELLS = 36 * 21;
+    // Каталог для журналов ходов; если свойство не задано, ходы не записываются
+    private static final String JOURNAL_PROPERTY = "minesweeper.journal";
+
+    private Controller controller;
+
     @Override
-    public void start(Stage primaryStage) throws FileNotFoundException {
+    public void start(Stage primaryStage) {
+        Metrics.start();
         showDifficultyDialog(primaryStage);
     }
 
-    private void showDifficultyDialog(Stage primaryStage) throws FileNotFoundException {
+    @Override
+    public void stop() {
+        if (controller != null) {
+            controller.closeJournal();
+        }
+    }
+
+    private void showDifficultyDialog(Stage primaryStage) {
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle("Шестигранный сапер");
         alert.setHeaderText("Выберите уровень сложности");
-        FileInputStream inputStream = new FileInputStream("src/main/java/images/icon.png");
-        Image icon = new Image(inputStream);
         Stage stage = (Stage) alert.getDialogPane().getScene().getWindow();
-        stage.getIcons().add(icon);
+        stage.getIcons().add(Assets.icon());
 
         ButtonType easyButton = new ButtonType("Легкий");
         ButtonType mediumButton = new ButtonType("Средний");
@@ -49,23 +73,11 @@ public class MinesweeperApp extends Application {
 
         alert.showAndWait().ifPresent(buttonType -> {
             if (easyButton.equals(buttonType)) {
-                try {
-                    startNewGame(primaryStage, EASY_WIDTH, EASY_HEIGHT, EASY_MINES);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
+                startNewGame(primaryStage, EASY_WIDTH, EASY_HEIGHT, EASY_MINES);
             } else if (mediumButton.equals(buttonType)) {
-                try {
-                    startNewGame(primaryStage, MEDIUM_WIDTH, MEDIUM_HEIGHT, MEDIUM_MINES);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
+                startNewGame(primaryStage, MEDIUM_WIDTH, MEDIUM_HEIGHT, MEDIUM_MINES);
             } else if (hardButton.equals(buttonType)) {
-                try {
-                    startNewGame(primaryStage, HARD_WIDTH, HARD_HEIGHT, HARD_MINES);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
+                startNewGame(primaryStage, HARD_WIDTH, HARD_HEIGHT, HARD_MINES);
             } else if (customButton.equals(buttonType)) {
                 showCustomDialog(primaryStage);
             } else if (cancelButton.equals(buttonType)) {
@@ -83,9 +95,9 @@ public class MinesweeperApp extends Application {
         dialog.setHeaderText("Выберите уровень сложности");
 
         TextField widthField = new TextField();
-        widthField.setPromptText("от 9 до 35");
+        widthField.setPromptText("от 10 до " + MAX_CUSTOM_WIDTH);
         TextField heightField = new TextField();
-        heightField.setPromptText("от 9 до 20");
+        heightField.setPromptText("от 10 до " + MAX_CUSTOM_HEIGHT);
         TextField minesField = new TextField();
         minesField.setPromptText("Макс. = ширина * высота");
 
@@ -116,7 +128,8 @@ public class MinesweeperApp extends Application {
                     int height = Integer.parseInt(heightText);
                     int mines = Integer.parseInt(minesText);
 
-                    if (width <= 9 || width > 36 || height <= 9 || height > 21 || mines < 0 || mines > height * width) {
+                    if (width <= 9 || width > MAX_CUSTOM_WIDTH || height <= 9 || height > MAX_CUSTOM_HEIGHT
+                            || mines < 0 || mines > height * width) {
                         return null;
                     }
 
@@ -132,67 +145,112 @@ public class MinesweeperApp extends Application {
         // Отображение диалога и обработка результата
         Optional<CustomDifficulty> result = dialog.showAndWait();
         result.ifPresentOrElse(
-                customDifficulty -> {
-                    try {
-                        startNewGame(primaryStage, customDifficulty.width(), customDifficulty.height(), customDifficulty.mines());
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                },
-                () -> {
-                    try {
-                        showDifficultyDialog(primaryStage);
-                    } catch (FileNotFoundException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
+                customDifficulty -> startNewGame(primaryStage, customDifficulty.width(), customDifficulty.height(), customDifficulty.mines()),
+                () -> showDifficultyDialog(primaryStage)
         );
     }
 
-    private void startNewGame(Stage primaryStage, int width, int height, int numMines) throws IOException {
+    private void startNewGame(Stage primaryStage, int width, int height, int numMines) {
+        startGame(primaryStage, new Board(height, width, numMines));
+    }
+
+    private void startGame(Stage primaryStage, Board board) {
+        int width = board.getWidth();
+        int height = board.getHeight();
         VBox centerPane = new VBox(25);
         centerPane.setAlignment(Pos.TOP_CENTER);
-        HBox hBox = new HBox(70);
+        HBox hBox = new HBox(20);
         Pane gameBoardPane = new Pane();
 
-
-        Board board = new Board(height, width, numMines);
-        Label mineCountLabel = new Label("Бoмб осталось: " + numMines);
-        View view = new View(board, gameBoardPane);
-        Controller controller = new Controller(board, view, mineCountLabel);
+        Label mineCountLabel = new Label("Бoмб осталось: " + (board.getMines() - board.getFlaggedTilesCount()));
+        RendererType rendererType = RendererType.fromSystemProperty();
+        if (rendererType == RendererType.NODES && board.getCellCount() > NODE_RENDERER_MAX_CELLS) {
+            rendererType = RendererType.CANVAS;
+        }
+        View view = new View(board, gameBoardPane, rendererType);
+        if (controller != null) {
+            controller.closeJournal();
+        }
+        controller = new Controller(board, view, mineCountLabel);
+        String journalDirectory = System.getProperty(JOURNAL_PROPERTY);
+        if (journalDirectory != null) {
+            controller.setJournalDirectory(Path.of(journalDirectory));
+        }
 
         view.drawBoard();
+        // Загруженная партия может быть начата или окончена: рисуем её по модели
+        controller.restoreView();
 
         Button stopGameButton = new Button("Новая игра");
-        stopGameButton.setOnAction(event -> {
-            try {
-                showDifficultyDialog(primaryStage);
-            } catch (FileNotFoundException e) {
-                throw new RuntimeException(e);
-            }
-        });
+        stopGameButton.setOnAction(event -> showDifficultyDialog(primaryStage));
 
+        Button saveButton = new Button("Сохранить");
+        saveButton.setOnAction(event -> saveGame(primaryStage, board));
+        Button loadButton = new Button("Загрузить");
+        loadButton.setOnAction(event -> loadGame(primaryStage));
 
-        hBox.getChildren().addAll(stopGameButton, mineCountLabel);
+        hBox.getChildren().addAll(stopGameButton, saveButton, loadButton, mineCountLabel);
 
         centerPane.getChildren().addAll(gameBoardPane, hBox);
         hBox.setAlignment(Pos.CENTER);
 
-        double tileHeight = 2 * 22;
-        double tileWidth = 2 * Math.sqrt(22 * 22 * 0.75);
-        int windowWidth = (int) (80 + tileWidth * width + 11);
-        int windowHeight = (int) (100 + tileHeight * height * 3 / 4);
+        // Окно подгоняется под поле, но не больше экрана; остальное доступно прокруткой
+        Rectangle2D screen = Screen.getPrimary().getVisualBounds();
+        double paneWidth = Math.min(HexGeometry.boardWidth(width) + HexGeometry.X_OFFSET, screen.getWidth() * 0.9);
+        double paneHeight = Math.min(HexGeometry.boardHeight(height), screen.getHeight() * 0.9 - 60);
+        gameBoardPane.setPrefSize(paneWidth, paneHeight);
+        VBox.setVgrow(gameBoardPane, Priority.ALWAYS);
 
-        primaryStage.setScene(new Scene(centerPane, windowWidth, windowHeight));
+        Scene scene = new Scene(centerPane, paneWidth, paneHeight + 60);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN), controller::undo);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN), controller::redo);
+        primaryStage.setScene(scene);
 
-        primaryStage.setResizable(false);
+        primaryStage.setResizable(true);
         primaryStage.setTitle("Шестигранный сапер");
-        FileInputStream inputStream = new FileInputStream("src/main/java/images/icon.png");
-        Image icon = new Image(inputStream);
-        primaryStage.getIcons().add(icon);
+        primaryStage.getIcons().setAll(Assets.icon());
         primaryStage.show();
     }
 
+    private static FileChooser saveFileChooser() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Шестигранный сапер");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Сохранения сапера", "*.hxms"));
+        return chooser;
+    }
+
+    private void saveGame(Stage primaryStage, Board board) {
+        File file = saveFileChooser().showSaveDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+        try {
+            BoardSnapshot.save(board, file.toPath());
+        } catch (IOException e) {
+            showError("Не удалось сохранить игру", e);
+        }
+    }
+
+    private void loadGame(Stage primaryStage) {
+        File file = saveFileChooser().showOpenDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+        try {
+            startGame(primaryStage, BoardSnapshot.load(file.toPath()));
+        } catch (IOException e) {
+            showError("Не удалось загрузить игру", e);
+        }
+    }
+
+    private static void showError(String header, IOException e) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Шестигранный сапер");
+        alert.setHeaderText(header);
+        alert.setContentText(e.getMessage());
+        alert.showAndWait();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
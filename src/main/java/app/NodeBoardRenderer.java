@@ -0,0 +1,66 @@
+package app;
+
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Polygon;
+import model.Board;
+
+import java.util.function.IntFunction;
+
+import static app.HexGeometry.*;
+
+/**
+ * Отрисовка поля отдельным узлом {@link Polygon} на каждую клетку.
+ */
+final class NodeBoardRenderer implements BoardRenderer {
+    private final Board board;
+    private final Pane boardPane;
+    private final IntFunction<Paint> fills;
+
+    NodeBoardRenderer(Board board, Pane boardPane, IntFunction<Paint> fills) {
+        this.board = board;
+        this.boardPane = boardPane;
+        this.fills = fills;
+    }
+
+    @Override
+    public void drawBoard() {
+        boardPane.getChildren().clear();
+        int rowCount = board.getHeight();
+        int tilesPerRow = board.getWidth();
+
+        for (int row = 0; row < rowCount; row++) {
+            for (int column = 0; column < tilesPerRow; column++) {
+                HexTile hexTile = new HexTile(tileX(row, column), tileY(row));
+                boardPane.getChildren().add(hexTile);
+            }
+        }
+    }
+
+    @Override
+    public void updateTile(int cell) {
+        ((HexTile) boardPane.getChildren().get(cell)).setFill(fills.apply(cell));
+    }
+
+    private class HexTile extends Polygon {
+
+        HexTile(double x, double y) {
+            // создает шестиугольник, используя координаты углов
+            getPoints().addAll(
+                    x, y,
+                    x, y + r,
+                    x + n, y + r * 1.5,
+                    x + TILE_WIDTH, y + r,
+                    x + TILE_WIDTH, y,
+                    x + n, y - r * 0.5
+            );
+
+            setFill(Color.DARKSALMON);
+            setStrokeWidth(2);
+            setStroke(Color.BLACK);
+            // клики обрабатывает поле целиком, поэтому узлы не участвуют в выборе цели
+            setMouseTransparent(true);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package app;
+
+public enum RendererType {
+    NODES,
+    CANVAS;
+
+    // Выбирается свойством -Dminesweeper.renderer=nodes|canvas
+    public static RendererType fromSystemProperty() {
+        String value = System.getProperty("minesweeper.renderer", "nodes");
+        return "canvas".equalsIgnoreCase(value) ? CANVAS : NODES;
+    }
+}
@@ -0,0 +1,135 @@
+package app;
+
+import javafx.application.Platform;
+import metrics.Metrics;
+import metrics.TileFlushEvent;
+
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Очередь обновлений клеток между моделью и отображением. Пакеты изменённых клеток
+ * складываются в неблокирующую очередь и применяются одним проходом на FX-потоке;
+ * повторные обновления одной клетки в пределах прохода схлопываются. Обновление всего поля
+ * не раскладывается на клетки: рендерер перерисовывает только видимую часть.
+ */
+final class TileUpdateQueue {
+    private static final int[] ALL_CELLS = new int[0];
+
+    private final ConcurrentLinkedQueue<int[]> batches = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final BitSet pending = new BitSet();
+    private final int cellCount;
+    private final IntConsumer painter;
+    private final IntUnaryOperator allPainter;
+    private final Runnable afterDrain;
+
+    private int cellsUpdatedLastFrame;
+    private int maxCellsUpdatedPerFrame;
+    private long framesDrained;
+    private long cellsUpdatedTotal;
+    private long inputStarted; // только FX-поток
+
+    // allPainter получает число клеток поля и возвращает, сколько клеток он реально нарисовал
+    TileUpdateQueue(int cellCount, IntConsumer painter, IntUnaryOperator allPainter, Runnable afterDrain) {
+        this.cellCount = cellCount;
+        this.painter = painter;
+        this.allPainter = allPainter;
+        this.afterDrain = afterDrain;
+    }
+
+    void publish(int[] cells) {
+        if (cells.length > 0) {
+            batches.add(cells);
+            scheduleDrain();
+        }
+    }
+
+    void publishAll() {
+        batches.add(ALL_CELLS);
+        scheduleDrain();
+    }
+
+    // Засекает нажатие, если его изменения ещё ждут прохода; время до перерисовки пишет drain
+    void markInput(long nanos) {
+        if (drainScheduled.get() && inputStarted == 0) {
+            inputStarted = nanos;
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::drain);
+        }
+    }
+
+    // Выполняется на FX-потоке до ближайшего кадра
+    private void drain() {
+        drainScheduled.set(false);
+        TileFlushEvent event = new TileFlushEvent();
+        event.begin();
+
+        int[] batch;
+        int batchCount = 0;
+        boolean all = false;
+        while ((batch = batches.poll()) != null) {
+            batchCount++;
+            if (batch == ALL_CELLS) {
+                all = true;
+            } else if (!all) {
+                for (int cell : batch) {
+                    pending.set(cell);
+                }
+            }
+        }
+
+        int updated = 0;
+        if (all) {
+            // Отдельные клетки не нужны: рендерер сам перерисует то, что видно
+            updated = allPainter.applyAsInt(cellCount);
+        } else {
+            for (int cell = pending.nextSetBit(0); cell >= 0; cell = pending.nextSetBit(cell + 1)) {
+                painter.accept(cell);
+                updated++;
+            }
+        }
+        pending.clear();
+        afterDrain.run();
+        if (event.shouldCommit()) {
+            event.batches = batchCount;
+            event.tiles = updated;
+            event.commit();
+        }
+
+        if (updated > 0) {
+            cellsUpdatedLastFrame = updated;
+            maxCellsUpdatedPerFrame = Math.max(maxCellsUpdatedPerFrame, updated);
+            cellsUpdatedTotal += updated;
+            framesDrained++;
+        }
+        if (Metrics.ENABLED) {
+            if (updated > 0) {
+                Metrics.TILES_REPAINTED.record(updated);
+            }
+            if (inputStarted != 0) {
+                Metrics.CLICK_TO_PAINT_NANOS.record(System.nanoTime() - inputStarted);
+                inputStarted = 0;
+            }
+        }
+    }
+
+    int getCellsUpdatedLastFrame() {
+        return cellsUpdatedLastFrame;
+    }
+
+    int getMaxCellsUpdatedPerFrame() {
+        return maxCellsUpdatedPerFrame;
+    }
+
+    double getAverageCellsUpdatedPerFrame() {
+        return framesDrained == 0 ? 0 : (double) cellsUpdatedTotal / framesDrained;
+    }
+}
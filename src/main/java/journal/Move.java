@@ -0,0 +1,4 @@
+package journal;
+
+public record Move(MoveType type, int row, int column) {
+}
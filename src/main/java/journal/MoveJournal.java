@@ -0,0 +1,157 @@
+package journal;
+
+import model.Board;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Журнал ходов одной партии, только дозапись. Заголовок хранит размеры поля, число мин
+ * и зерно, по которым доска создаётся заново; если расстановка задана явно
+ * ({@link Board#hasFixedLayout()}), за заголовком идут индексы мин. Затем идут записи
+ * фиксированной длины.
+ * <pre>
+ * заголовок, 32 байта: "HXMJ", версия (2), флаги (2), строки, столбцы, мины, зерно (8), резерв (4)
+ * мины, 4 байта каждая: только при флаге {@link #FIXED_LAYOUT}
+ * запись, 12 байт:     вид хода (1), резерв (3), строка (4), столбец (4)
+ * </pre>
+ * {@link #record} только копирует запись в буфер в памяти; на диск буфер сбрасывает
+ * отдельный поток раз в {@link #FLUSH_INTERVAL_MILLIS} мс или при закрытии, так что поток
+ * интерфейса никогда не ждёт ввода-вывода.
+ */
+public final class MoveJournal implements AutoCloseable {
+    static final int MAGIC = 0x48584D4A; // "HXMJ"
+    static final short VERSION = 2;
+    static final int FIXED_LAYOUT = 1;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 12;
+    static final long FLUSH_INTERVAL_MILLIS = 200;
+
+    private final FileChannel channel;
+    private final Thread writer;
+    private final Object lock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(RECORD_BYTES * 1024);
+    private ByteBuffer writing = ByteBuffer.allocate(RECORD_BYTES * 1024);
+    private int moveCount;
+    private boolean closed;
+    private IOException failure;
+
+    private MoveJournal(FileChannel channel) {
+        this.channel = channel;
+        writer = new Thread(this::writeLoop, "move-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static MoveJournal create(Path path, Board board) throws IOException {
+        boolean fixedLayout = board.hasFixedLayout();
+        int[] mineCells = fixedLayout ? board.getMineCells() : new int[0];
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + mineCells.length * 4)
+                .putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) (fixedLayout ? FIXED_LAYOUT : 0))
+                .putInt(board.getHeight())
+                .putInt(board.getWidth())
+                .putInt(board.getMines())
+                .putLong(board.getSeed())
+                .putInt(0);
+        for (int mine : mineCells) {
+            header.putInt(mine);
+        }
+        header.flip();
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new MoveJournal(channel);
+    }
+
+    public void record(MoveType type, int row, int column) {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Журнал закрыт");
+            }
+            if (pending.remaining() < RECORD_BYTES) {
+                // Запись на диск отстала: буфер растёт, а не блокирует вызывающий поток
+                ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2);
+                pending = larger.put(pending.flip());
+            }
+            pending.put((byte) type.ordinal())
+                    .put((byte) 0)
+                    .putShort((short) 0)
+                    .putInt(row)
+                    .putInt(column);
+            moveCount++;
+        }
+    }
+
+    public int getMoveCount() {
+        synchronized (lock) {
+            return moveCount;
+        }
+    }
+
+    /**
+     * Дописывает оставшиеся записи и закрывает файл. Ошибка фонового потока, если она была,
+     * пробрасывается отсюда.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void writeLoop() {
+        boolean finished = false;
+        while (!finished) {
+            synchronized (lock) {
+                if (!closed) {
+                    try {
+                        lock.wait(FLUSH_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                finished = closed;
+                // Буферы меняются местами, запись на диск идёт уже без блокировки
+                ByteBuffer swap = writing;
+                writing = pending;
+                pending = swap;
+            }
+
+            writing.flip();
+            try {
+                while (writing.hasRemaining() && failure == null) {
+                    channel.write(writing);
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+            writing.clear();
+        }
+    }
+}
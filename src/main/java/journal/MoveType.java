@@ -0,0 +1,14 @@
+package journal;
+
+/**
+ * Виды ходов в журнале. Номер в файле - порядковый номер константы, поэтому новые виды
+ * добавляются только в конец.
+ */
+public enum MoveType {
+    OPEN,
+    FLAG,
+    UNFLAG,
+    CHORD,
+    UNDO,  // строка и столбец не используются
+    REDO
+}
@@ -0,0 +1,177 @@
+package journal;
+
+import model.Board;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Воспроизведение партии из журнала. Доска создаётся заново по зерну из заголовка
+ * или по записанным в журнал минам, затем к ней применяются ходы. Каждые {@code checkpointInterval} ходов в памяти
+ * сохраняется копия доски вместе с историей отмены, чтобы ходы UNDO после перехода
+ * работали так же, как в партии, и переход к ходу с номером n начинается с ближайшего
+ * снимка не позже n, а не с начала партии. Снимки появляются по мере продвижения вперёд.
+ */
+public final class Replay {
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 256;
+
+    private final int rows;
+    private final int columns;
+    private final int mines;
+    private final long seed;
+    private final int[] mineCells; // null, если доска строится по зерну
+    private final ByteBuffer records;
+    private final int moveCount;
+    private final int checkpointInterval;
+    private final Board[] checkpoints;
+
+    private Board board;
+    private int position;
+
+    public Replay(Path path) throws IOException {
+        this(path, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public Replay(Path path, int checkpointInterval) throws IOException {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Интервал снимков должен быть положительным");
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < MoveJournal.HEADER_BYTES || buffer.getInt() != MoveJournal.MAGIC) {
+            throw new IOException("Файл не является журналом ходов");
+        }
+        short version = buffer.getShort();
+        if (version != MoveJournal.VERSION) {
+            throw new IOException("Неподдерживаемая версия журнала: " + version);
+        }
+        int flags = buffer.getShort();
+        rows = buffer.getInt();
+        columns = buffer.getInt();
+        mines = buffer.getInt();
+        seed = buffer.getLong();
+        buffer.getInt();
+        if (rows <= 0 || columns <= 0 || (long) rows * columns > Integer.MAX_VALUE || mines < 0
+                || mines > (long) rows * columns) {
+            throw new IOException("Повреждённый заголовок журнала");
+        }
+        if ((flags & MoveJournal.FIXED_LAYOUT) != 0) {
+            if (buffer.remaining() < mines * 4L) {
+                throw new IOException("Повреждённый заголовок журнала");
+            }
+            mineCells = new int[mines];
+            for (int i = 0; i < mines; i++) {
+                mineCells[i] = buffer.getInt();
+            }
+        } else {
+            mineCells = null;
+        }
+
+        // Незавершённая последняя запись (например, после аварийного выхода) отбрасывается
+        records = buffer.slice();
+        moveCount = records.remaining() / MoveJournal.RECORD_BYTES;
+        // Записи проверяются сразу, чтобы испорченный журнал не падал посреди воспроизведения
+        for (int number = 0; number < moveCount; number++) {
+            int offset = number * MoveJournal.RECORD_BYTES;
+            int type = records.get(offset);
+            int row = records.getInt(offset + 4);
+            int column = records.getInt(offset + 8);
+            if (type < 0 || type >= MoveType.values().length || row < 0 || row >= rows || column < 0
+                    || column >= columns) {
+                throw new IOException("Повреждённая запись журнала, ход " + number);
+            }
+        }
+        this.checkpointInterval = checkpointInterval;
+        checkpoints = new Board[moveCount / checkpointInterval + 1];
+
+        try {
+            board = initialBoard();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Повреждённый заголовок журнала", e);
+        }
+        position = 0;
+    }
+
+    private Board initialBoard() {
+        return mineCells != null ? Board.fromMines(rows, columns, mineCells, seed) : new Board(rows, columns, mines, seed);
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    public Move move(int number) {
+        if (number < 0 || number >= moveCount) {
+            throw new IllegalArgumentException("Номер хода вне журнала: " + number);
+        }
+        int offset = number * MoveJournal.RECORD_BYTES;
+        MoveType type = MoveType.values()[records.get(offset)];
+        return new Move(type, records.getInt(offset + 4), records.getInt(offset + 8));
+    }
+
+    // Применяет следующий ход; возвращает false, если ходы закончились
+    public boolean step() {
+        if (position >= moveCount) {
+            return false;
+        }
+        if (position % checkpointInterval == 0 && checkpoints[position / checkpointInterval] == null) {
+            checkpoints[position / checkpointInterval] = board.copy();
+        }
+        apply(board, move(position));
+        position++;
+        return true;
+    }
+
+    /**
+     * Приводит доску к состоянию после первых {@code moveNumber} ходов.
+     * Возвращаемая доска может быть новым объектом, если пришлось вернуться назад.
+     */
+    public Board seek(int moveNumber) {
+        if (moveNumber < 0 || moveNumber > moveCount) {
+            throw new IllegalArgumentException("Номер хода вне журнала: " + moveNumber);
+        }
+        int nearest = moveNumber / checkpointInterval;
+        while (nearest > 0 && checkpoints[nearest] == null) {
+            nearest--;
+        }
+        int checkpointPosition = nearest * checkpointInterval;
+
+        // Идти вперёд от текущего хода выгоднее, если он не раньше ближайшего снимка
+        if (position > moveNumber || position < checkpointPosition) {
+            if (checkpoints[nearest] != null) {
+                board = checkpoints[nearest].copy();
+            } else {
+                board = initialBoard();
+            }
+            position = checkpointPosition;
+        }
+        while (position < moveNumber) {
+            step();
+        }
+        return board;
+    }
+
+    public static void apply(Board board, Move move) {
+        switch (move.type()) {
+            case OPEN -> board.reveal(move.row(), move.column());
+            case CHORD -> board.chord(move.row(), move.column());
+            case FLAG -> board.flagTile(move.row(), move.column());
+            case UNFLAG -> board.unflagTile(move.row(), move.column());
+            case UNDO -> board.undo();
+            case REDO -> board.redo();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("minesweeper.AssetLoad")
+@Label("Asset Load")
+@Category({"Minesweeper", "UI"})
+public final class AssetLoadEvent extends jdk.jfr.Event {
+    @Label("File")
+    public String file;
+
+    @Label("Size")
+    public int size;
+}
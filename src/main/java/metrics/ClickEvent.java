@@ -0,0 +1,22 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Обработка нажатия на клетку до передачи изменений на перерисовку.
+ */
+@Name("minesweeper.Click")
+@Label("Click")
+@Category({"Minesweeper", "UI"})
+public final class ClickEvent extends jdk.jfr.Event {
+    @Label("Row")
+    public int row;
+
+    @Label("Column")
+    public int column;
+
+    @Label("Button")
+    public String button;
+}
@@ -0,0 +1,29 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Расстановка мин. У обычной доски попытка всегда одна (выборка Флойда без повторов),
+ * у генератора полей без угадывания - сколько расстановок он перебрал.
+ * Порог тот же, что у {@link RevealEvent}: расстановка на обычных полях занимает микросекунды.
+ */
+@Name("minesweeper.Generation")
+@Label("Board Generation")
+@Category({"Minesweeper", "Model"})
+@Threshold("100 us")
+public final class GenerationEvent extends jdk.jfr.Event {
+    @Label("Rows")
+    public int rows;
+
+    @Label("Columns")
+    public int columns;
+
+    @Label("Mines")
+    public int mines;
+
+    @Label("Placement Attempts")
+    public long attempts;
+}
@@ -0,0 +1,132 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма в духе HdrHistogram: значения до {@value #SUB_BUCKETS} пишутся точно, дальше
+ * каждая степень двойки делится на {@value #SUB_BUCKETS}/2 равных корзин, то есть
+ * относительная погрешность квантилей не больше 1/32. Запись - только атомарные
+ * инкременты в заранее выделенном массиве, без аллокаций и блокировок.
+ */
+public final class Histogram implements HistogramMXBean {
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    // Точные значения [0, SUB_BUCKETS) и по HALF корзин на каждую степень двойки от SUB_BITS до 62
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BITS) * HALF;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public Histogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Отрицательные значения считаются нулём
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BITS + 1;
+        return SUB_BUCKETS + (magnitude - SUB_BITS) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    // Наибольшее значение, попадающее в корзину
+    static long highestInBucket(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = (bucket - SUB_BUCKETS) / HALF + SUB_BITS;
+        int shift = magnitude - SUB_BITS + 1;
+        long top = (bucket - SUB_BUCKETS) % HALF + HALF;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * Значение, не меньше которого доля {@code quantile} записей (с точностью корзины).
+     * Читается без остановки записи, так что при параллельной записи результат приблизительный.
+     */
+    public long getValueAtQuantile(double quantile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestInBucket(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public double getMean() {
+        long total = count.get();
+        return total == 0 ? 0 : (double) sum.get() / total;
+    }
+
+    @Override
+    public long getMax() {
+        return max.get();
+    }
+
+    @Override
+    public long getP50() {
+        return getValueAtQuantile(0.50);
+    }
+
+    @Override
+    public long getP90() {
+        return getValueAtQuantile(0.90);
+    }
+
+    @Override
+    public long getP99() {
+        return getValueAtQuantile(0.99);
+    }
+
+    @Override
+    public long getP999() {
+        return getValueAtQuantile(0.999);
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
@@ -0,0 +1,22 @@
+package metrics;
+
+/**
+ * Гистограмма в JMX: число записей и основные квантили в единицах записи.
+ */
+public interface HistogramMXBean {
+    long getCount();
+
+    double getMean();
+
+    long getMax();
+
+    long getP50();
+
+    long getP90();
+
+    long getP99();
+
+    long getP999();
+
+    void reset();
+}
@@ -0,0 +1,62 @@
+package metrics;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Сводка записи JFR по типам событий: число событий и длительности (среднее, p50, p99, максимум,
+ * сумма). По умолчанию только события игры, с {@code --all} - все, включая GC и JIT.
+ * <p>
+ * Запуск: {@code java -cp target/classes metrics.JfrSummary запись.jfr [--all]}
+ */
+public final class JfrSummary {
+    private static final String GAME_EVENTS = "minesweeper.";
+
+    private JfrSummary() {
+    }
+
+    // Длительности в наносекундах по именам типов; у мгновенных событий длительность нулевая
+    public static Map<String, Histogram> durationsByType(Path file, boolean allEvents) throws IOException {
+        Map<String, Histogram> byType = new TreeMap<>();
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                String type = event.getEventType().getName();
+                if (allEvents || type.startsWith(GAME_EVENTS)) {
+                    byType.computeIfAbsent(type, Histogram::new).record(event.getDuration().toNanos());
+                }
+            }
+        }
+        return byType;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Использование: JfrSummary <файл.jfr> [--all]");
+            System.exit(1);
+        }
+        boolean all = args.length > 1 && args[1].equals("--all");
+        Map<String, Histogram> byType = durationsByType(Path.of(args[0]), all);
+
+        // Сначала типы, на которые ушло больше всего времени
+        List<Histogram> sorted = byType.values().stream()
+                .sorted(Comparator.comparingDouble((Histogram h) -> h.getMean() * h.getCount()).reversed())
+                .collect(Collectors.toList());
+        System.out.printf(Locale.ROOT, "%-40s %10s %12s %10s %10s %10s %12s%n",
+                "event", "count", "total ms", "mean us", "p50 us", "p99 us", "max us");
+        for (Histogram h : sorted) {
+            System.out.printf(Locale.ROOT, "%-40s %10d %12.1f %10.1f %10.1f %10.1f %12.1f%n",
+                    h.getName(), h.getCount(), h.getMean() * h.getCount() / 1e6, h.getMean() / 1e3,
+                    h.getP50() / 1e3, h.getP99() / 1e3, h.getMax() / 1e3);
+        }
+    }
+}
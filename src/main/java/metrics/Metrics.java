@@ -0,0 +1,102 @@
+package metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики горячих путей. Включаются свойством {@code -Dminesweeper.metrics=true}; флаг
+ * {@link #ENABLED} - константа, поэтому при выключенных метриках JIT выбрасывает проверки
+ * вместе с вызовами {@link System#nanoTime()}. Гистограммы видны в JMX в домене
+ * {@code minesweeper}, а при {@code -Dminesweeper.metrics.dump=<файл>} ещё и
+ * переписываются в файл раз в {@code minesweeper.metrics.dumpSeconds} секунд (по умолчанию 10).
+ */
+public final class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("minesweeper.metrics");
+
+    // От нажатия до конца обработки хода в модели; первый ход включает расстановку мин
+    public static final Histogram CLICK_NANOS = new Histogram("clickNanos");
+    // От нажатия до перерисовки изменённых клеток
+    public static final Histogram CLICK_TO_PAINT_NANOS = new Histogram("clickToPaintNanos");
+    public static final Histogram CASCADE_NANOS = new Histogram("cascadeNanos");
+    public static final Histogram CASCADE_CELLS = new Histogram("cascadeCells");
+    public static final Histogram TILES_REPAINTED = new Histogram("tilesRepainted");
+    public static final Histogram DRAW_BOARD_NANOS = new Histogram("drawBoardNanos");
+    public static final Histogram ASSET_LOAD_NANOS = new Histogram("assetLoadNanos");
+
+    private static final List<Histogram> ALL = List.of(CLICK_NANOS, CLICK_TO_PAINT_NANOS, CASCADE_NANOS,
+            CASCADE_CELLS, TILES_REPAINTED, DRAW_BOARD_NANOS, ASSET_LOAD_NANOS);
+
+    private static boolean started;
+
+    private Metrics() {
+    }
+
+    public static List<Histogram> histograms() {
+        return ALL;
+    }
+
+    /**
+     * Регистрирует гистограммы в платформенном MBean-сервере и запускает выгрузку в файл,
+     * если она задана. Без включённых метрик ничего не делает; повторный вызов безопасен.
+     */
+    public static synchronized void start() {
+        if (!ENABLED || started) {
+            return;
+        }
+        started = true;
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Histogram histogram : ALL) {
+            try {
+                server.registerMBean(histogram, new ObjectName("minesweeper:type=Histogram,name=" + histogram.getName()));
+            } catch (JMException e) {
+                System.err.println("Не удалось зарегистрировать метрику " + histogram.getName() + ": " + e.getMessage());
+            }
+        }
+
+        String dump = System.getProperty("minesweeper.metrics.dump");
+        if (dump != null) {
+            long period = Long.getLong("minesweeper.metrics.dumpSeconds", 10);
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            Path path = Path.of(dump);
+            executor.scheduleAtFixedRate(() -> dump(path), period, period, TimeUnit.SECONDS);
+        }
+    }
+
+    // Текстовая сводка: одна строка на гистограмму
+    public static String summary() {
+        StringBuilder builder = new StringBuilder(String.format(Locale.ROOT, "%-20s %10s %12s %10s %10s %10s %12s%n",
+                "name", "count", "mean", "p50", "p90", "p99", "max"));
+        for (Histogram h : ALL) {
+            builder.append(String.format(Locale.ROOT, "%-20s %10d %12.1f %10d %10d %10d %12d%n",
+                    h.getName(), h.getCount(), h.getMean(), h.getP50(), h.getP90(), h.getP99(), h.getMax()));
+        }
+        return builder.toString();
+    }
+
+    // Файл заменяется целиком, чтобы читатель не увидел половину сводки
+    private static void dump(Path path) {
+        try {
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.writeString(temporary, summary());
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Не удалось записать метрики в " + path + ": " + e.getMessage());
+        }
+    }
+}
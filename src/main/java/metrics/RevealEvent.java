@@ -0,0 +1,32 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Каскад открытия из одной клетки или вокруг неё (chord), без расстановки мин.
+ * Порог по умолчанию отсекает мелкие поля: симуляция открывает их миллионами,
+ * и без порога запись заметно тормозит её. Порог снимается в настройках записи.
+ */
+@Name("minesweeper.Reveal")
+@Label("Reveal Cascade")
+@Category({"Minesweeper", "Model"})
+@Threshold("100 us")
+public final class RevealEvent extends jdk.jfr.Event {
+    @Label("Row")
+    public int row;
+
+    @Label("Column")
+    public int column;
+
+    @Label("Chord")
+    public boolean chord;
+
+    @Label("Cells Opened")
+    public int cellsOpened;
+
+    @Label("Hit Mine")
+    public boolean hitMine;
+}
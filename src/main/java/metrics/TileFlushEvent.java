@@ -0,0 +1,19 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Один проход перерисовки накопленных клеток на FX-потоке.
+ */
+@Name("minesweeper.TileFlush")
+@Label("Tile Batch Flush")
+@Category({"Minesweeper", "UI"})
+public final class TileFlushEvent extends jdk.jfr.Event {
+    @Label("Batches")
+    public int batches;
+
+    @Label("Tiles Repainted")
+    public int tiles;
+}
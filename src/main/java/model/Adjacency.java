@@ -0,0 +1,95 @@
+package model;
+
+/**
+ * Таблица смежности шестиугольного поля в формате CSR: соседи клетки {@code cell}
+ * лежат в {@code at(start(cell))} .. {@code at(end(cell) - 1)}. Выход за границы
+ * поля уже отброшен, поэтому обход соседей не требует ни проверок, ни аллокаций.
+ */
+public final class Adjacency {
+    // Смещения {строка, столбец} для чётных и нечётных строк (нечётные сдвинуты вправо)
+    static final int[][] EVEN_ROW_OFFSETS = {{-1, -1}, {1, -1}, {-1, 0}, {0, -1}, {0, 1}, {1, 0}};
+    static final int[][] ODD_ROW_OFFSETS = {{1, 1}, {-1, 1}, {-1, 0}, {0, -1}, {0, 1}, {1, 0}};
+
+    private static volatile Adjacency lastBuilt;
+
+    private final int rows;
+    private final int columns;
+    private final int[] starts;
+    private final int[] neighbors;
+
+    private Adjacency(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        int cellCount = rows * columns;
+        starts = new int[cellCount + 1];
+
+        int total = 0;
+        for (int row = 0; row < rows; row++) {
+            int[][] offsets = row % 2 == 0 ? EVEN_ROW_OFFSETS : ODD_ROW_OFFSETS;
+            for (int col = 0; col < columns; col++) {
+                starts[row * columns + col] = total;
+                for (int[] offset : offsets) {
+                    if (isInside(row + offset[0], col + offset[1])) {
+                        total++;
+                    }
+                }
+            }
+        }
+        starts[cellCount] = total;
+
+        neighbors = new int[total];
+        int k = 0;
+        for (int row = 0; row < rows; row++) {
+            int[][] offsets = row % 2 == 0 ? EVEN_ROW_OFFSETS : ODD_ROW_OFFSETS;
+            for (int col = 0; col < columns; col++) {
+                for (int[] offset : offsets) {
+                    int newRow = row + offset[0];
+                    int newCol = col + offset[1];
+                    if (isInside(newRow, newCol)) {
+                        neighbors[k++] = newRow * columns + newCol;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Возвращает таблицу для поля заданного размера. Последняя построенная таблица
+     * переиспользуется, так что пересоздание доски того же размера её не перестраивает.
+     */
+    public static Adjacency of(int rows, int columns) {
+        Adjacency cached = lastBuilt;
+        if (cached != null && cached.rows == rows && cached.columns == columns) {
+            return cached;
+        }
+        Adjacency built = new Adjacency(rows, columns);
+        lastBuilt = built;
+        return built;
+    }
+
+    private boolean isInside(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < columns;
+    }
+
+    public int start(int cell) {
+        return starts[cell];
+    }
+
+    public int end(int cell) {
+        return starts[cell + 1];
+    }
+
+    public int at(int k) {
+        return neighbors[k];
+    }
+
+    /**
+     * Копирует соседей клетки в {@code out} (достаточно массива длины 6) и возвращает их количество.
+     */
+    public int neighbors(int cell, int[] out) {
+        int from = starts[cell];
+        int count = starts[cell + 1] - from;
+        System.arraycopy(neighbors, from, out, 0, count);
+        return count;
+    }
+}
@@ -1,44 +1,199 @@
 package model;
 
-import java.util.Random;
+import metrics.GenerationEvent;
+import metrics.Metrics;
+import metrics.RevealEvent;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 public class Board {
-    private final Tile[][] grid;
+    private final byte[] cells;
+    private final int[] mineCells;
+    private Adjacency adjacency; // строится при первом обращении
     private final int rows;
     private final int columns;
     private final int mines;
+    private long seed;
     private int correctFlags;
-    private boolean result; //true = win
+    private GameState state;
     private int openedTiles;
+    private int openedSafeTiles;
     private int flaggedTilesCount;
+    private int[] revealQueue;
+    private boolean generated;
+    private boolean fixedLayout; // мины заданы явно, по зерну их не восстановить
+    private final UndoLog history;
+    private final int[] countersBefore = new int[UndoLog.COUNTERS];
 
     public Board(int rows, int columns, int mines) {
+        this(rows, columns, mines, new SplittableRandom().nextLong());
+    }
+
+    public Board(int rows, int columns, int mines, long seed) {
+        if (mines < 0 || mines > rows * columns) {
+            throw new IllegalArgumentException("Количество мин должно быть от 0 до " + rows * columns);
+        }
         this.rows = rows;
         this.columns = columns;
         this.mines = mines;
-        grid = new Tile[rows][columns];
+        this.seed = seed;
+        cells = new byte[rows * columns];
+        mineCells = new int[mines];
+        Arrays.fill(mineCells, -1); // заполняется при расстановке
         correctFlags = 0;
         openedTiles = 0;
+        openedSafeTiles = 0;
         flaggedTilesCount = 0;
-        initializeGrid();
-        assignNeighborMineCounts();
-        result = false;
+        history = new UndoLog(UndoLog.DEFAULT_LIMIT);
+        // Мины расставляются при первом открытии, см. generate
+        generated = false;
+        state = GameState.READY;
     }
 
-    public int[][] getNeighborOffsets(int row) {
-        int[][] neighborOffsets = {
-                {0, 0}, {0, 0}, {-1, 0}, {0, -1}, {0, 1}, {1, 0},
+    // Восстановление из снимка: массив клеток принимается как есть, список мин собирается по нему
+    Board(int rows, int columns, int mines, long seed, byte[] cells, boolean generated, boolean fixedLayout,
+          GameState state, int openedTiles, int openedSafeTiles, int flaggedTilesCount, int correctFlags) {
+        if (cells.length != rows * columns) {
+            throw new IllegalArgumentException("Размер массива клеток не совпадает с размером поля");
+        }
+        if (fixedLayout && !generated) {
+            throw new IllegalArgumentException("Заданная расстановка без мин на поле");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.mines = mines;
+        this.seed = seed;
+        this.cells = cells;
+        this.state = state;
+        this.openedTiles = openedTiles;
+        this.openedSafeTiles = openedSafeTiles;
+        this.flaggedTilesCount = flaggedTilesCount;
+        this.correctFlags = correctFlags;
+        this.generated = generated;
+        this.fixedLayout = fixedLayout;
+        history = new UndoLog(UndoLog.DEFAULT_LIMIT);
+        mineCells = new int[mines];
+        if (!generated) {
+            Arrays.fill(mineCells, -1);
+        }
+
+        // До расстановки на поле не должно быть мин, после - ровно mines
+        int expected = generated ? mines : 0;
+        int found = 0;
+        int opened = 0;
+        int openedSafe = 0;
+        int flagged = 0;
+        int correct = 0;
+        boolean mineOpened = false;
+        for (int i = 0; i < cells.length; i++) {
+            byte cell = cells[i];
+            if (Cell.hasMine(cell)) {
+                if (found == expected) {
+                    throw new IllegalArgumentException("Мин на поле больше, чем " + expected);
+                }
+                mineCells[found++] = i;
+            }
+            if (Cell.isOpened(cell)) {
+                if (Cell.isFlagged(cell)) {
+                    throw new IllegalArgumentException("Клетка " + i + " открыта и помечена флагом");
+                }
+                opened++;
+                if (Cell.hasMine(cell)) {
+                    mineOpened = true;
+                } else {
+                    openedSafe++;
+                }
+            } else if (Cell.isFlagged(cell)) {
+                flagged++;
+                if (Cell.hasMine(cell)) {
+                    correct++;
+                }
+            }
+        }
+        if (found != expected) {
+            throw new IllegalArgumentException("Мин на поле " + found + ", ожидалось " + expected);
+        }
+        if (opened != openedTiles || openedSafe != openedSafeTiles || flagged != flaggedTilesCount
+                || correct != correctFlags) {
+            throw new IllegalArgumentException("Счётчики не совпадают с клетками поля");
+        }
+        if (!generated && opened > 0) {
+            throw new IllegalArgumentException("Открыты клетки до расстановки мин");
+        }
+
+        // После конца игры можно открыть всё поле, поэтому при открытых минах и всех безопасных
+        // клетках годятся и WON, и LOST; поставленный и снятый флаг оставляет PLAYING без следов
+        boolean allSafeOpened = openedSafe > 0 && openedSafe == cells.length - mines;
+        boolean consistent = switch (state) {
+            case LOST -> mineOpened;
+            case WON -> allSafeOpened;
+            case PLAYING -> !mineOpened && !allSafeOpened;
+            case READY -> opened == 0 && flagged == 0;
         };
+        if (!consistent) {
+            throw new IllegalArgumentException("Состояние игры " + state + " не совпадает с клетками поля");
+        }
+    }
+
+    /**
+     * Доска с заданной расстановкой мин, например подобранной генератором.
+     * Зерно сохраняется только для сведения: расстановку по нему не восстановить,
+     * поэтому такую доску нельзя сбросить через {@link #resetBoard(long)}, а журнал ходов
+     * хранит её мины явно.
+     */
+    public static Board fromMines(int rows, int columns, int[] mineCells, long seed) {
+        byte[] cells = new byte[rows * columns];
+        for (int mine : mineCells) {
+            if (mine < 0 || mine >= cells.length) {
+                throw new IllegalArgumentException("Мина вне поля: " + mine);
+            }
+            cells[mine] |= Cell.MINE;
+        }
+        Board board = new Board(rows, columns, mineCells.length, seed, cells, true, true, GameState.READY,
+                0, 0, 0, 0);
+        board.incrementNeighborCounts();
+        return board;
+    }
+
+    private Board(Board other) {
+        rows = other.rows;
+        columns = other.columns;
+        mines = other.mines;
+        seed = other.seed;
+        cells = other.cells.clone();
+        mineCells = other.mineCells.clone();
+        adjacency = other.adjacency;
+        state = other.state;
+        openedTiles = other.openedTiles;
+        openedSafeTiles = other.openedSafeTiles;
+        flaggedTilesCount = other.flaggedTilesCount;
+        correctFlags = other.correctFlags;
+        generated = other.generated;
+        fixedLayout = other.fixedLayout;
+        history = new UndoLog(other.history);
+    }
+
+    // Независимая копия доски вместе с историей отмены; записи истории неизменяемы и общие
+    public Board copy() {
+        return new Board(this);
+    }
 
-        if (row % 2 == 0) {
-            neighborOffsets[0] = new int[]{-1, -1};
-            neighborOffsets[1] = new int[]{1, -1};
-        } else {
-            neighborOffsets[0] = new int[]{1, 1};
-            neighborOffsets[1] = new int[]{-1, 1};
+    // Возвращает общие для всех досок массивы смещений, изменять их нельзя
+    public int[][] getNeighborOffsets(int row) {
+        return row % 2 == 0 ? Adjacency.EVEN_ROW_OFFSETS : Adjacency.ODD_ROW_OFFSETS;
+    }
+
+    // Смежность нужна только ходам и решателям, поэтому создание доски её не строит
+    public Adjacency getAdjacency() {
+        if (adjacency == null) {
+            adjacency = Adjacency.of(rows, columns);
         }
+        return adjacency;
+    }
 
-        return neighborOffsets;
+    public int neighbors(int cellIndex, int[] out) {
+        return getAdjacency().neighbors(cellIndex, out);
     }
 
     public int getHeight() {
@@ -49,130 +204,456 @@ public class Board {
         return columns;
     }
 
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    public int getCellIndex(int row, int column) {
+        return row * columns + column;
+    }
+
     public Tile getTile(int row, int column) {
-        return grid[row][column];
+        return new Tile(cells, getCellIndex(row, column));
+    }
+
+    public boolean isOpened(int cellIndex) {
+        return Cell.isOpened(cells[cellIndex]);
+    }
+
+    public boolean isFlagged(int cellIndex) {
+        return Cell.isFlagged(cells[cellIndex]);
+    }
+
+    public boolean hasMine(int cellIndex) {
+        return Cell.hasMine(cells[cellIndex]);
+    }
+
+    public int getNeighborMineCount(int cellIndex) {
+        return Cell.neighborMineCount(cells[cellIndex]);
+    }
+
+    public boolean isGenerated() {
+        return generated;
+    }
+
+    public boolean hasFixedLayout() {
+        return fixedLayout;
+    }
+
+    // Индексы клеток с минами; до расстановки заполнен -1
+    public int[] getMineCells() {
+        return mineCells.clone();
     }
 
-    private void initializeGrid() {
-        // Заполнение сетки клетками
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                grid[i][j] = new Tile();
+    /**
+     * Расставляет мины, если это ещё не сделано. Клетка (safeRow, safeColumn) и её соседи
+     * остаются без мин, если для этого хватает места; иначе свободной остаётся хотя бы
+     * сама клетка. Расстановка однозначно задаётся зерном и безопасной клеткой.
+     * Обычно вызывается первым открытием, явно - когда мины нужны до первого хода.
+     */
+    public void generate(int safeRow, int safeColumn) {
+        if (!generated) {
+            placeMines(getCellIndex(safeRow, safeColumn));
+        }
+    }
+
+    private void placeMines(int safeCell) {
+        int[] excluded = new int[0];
+        if (safeCell >= 0) {
+            int[] neighborhood = new int[7];
+            int count = getAdjacency().neighbors(safeCell, neighborhood);
+            neighborhood[count++] = safeCell;
+            if (mines <= cells.length - count) {
+                excluded = Arrays.copyOf(neighborhood, count);
+            } else if (mines < cells.length) {
+                excluded = new int[]{safeCell};
             }
         }
 
-        // Расстановка случайных мин
-        Random random = new Random();
-        int minesToPlace = mines;
+        // Флаги могли быть поставлены до расстановки, они сохраняются, а их история
+        // сбрасывается: записанные в ней счётчики верных флагов уже не соответствуют полю
+        history.clear();
+        GenerationEvent event = new GenerationEvent();
+        event.begin();
+        MinePlacer.place(cells, mines, new SplittableRandom(seed), mineCells, excluded);
+        generated = true;
+        incrementNeighborCounts();
+        if (event.shouldCommit()) {
+            event.rows = rows;
+            event.columns = columns;
+            event.mines = mines;
+            event.attempts = 1;
+            event.commit();
+        }
+        for (int mine : mineCells) {
+            if (Cell.isFlagged(cells[mine])) {
+                correctFlags++;
+            }
+        }
+    }
 
-        while (minesToPlace > 0) {
-            int row = random.nextInt(rows);
-            int col = random.nextInt(columns);
+    public void openTile(int row, int column) {
+        int index = getCellIndex(row, column);
+        byte cell = cells[index];
 
-            if (!grid[row][col].hasMine()) {
-                grid[row][col].setHasMine(true);
-                minesToPlace--;
+        if (!Cell.isOpened(cell) && !Cell.isFlagged(cell) && !state.isOver()) {
+            if (!generated) {
+                placeMines(index);
+                cell = cells[index];
             }
+            beginAction();
+            cells[index] = (byte) (cell | Cell.OPENED);
+            onOpened(cell);
+            endAction(Cell.OPENED, new int[]{index}, 1);
         }
     }
 
-    public void openTile(int row, int column) {
-        Tile tile = grid[row][column];
+    /**
+     * Открывает клетку и, если вокруг неё нет мин, каскадно всех соседей.
+     * Обход идёт по явной очереди без рекурсии, поэтому глубина каскада не ограничена стеком.
+     */
+    public RevealResult reveal(int row, int column) {
+        int start = getCellIndex(row, column);
+        byte cell = cells[start];
+
+        if (Cell.isOpened(cell) || Cell.isFlagged(cell) || state.isOver()) {
+            return new RevealResult(new int[0], false, getResult());
+        }
+        if (!generated) {
+            placeMines(start);
+            cell = cells[start];
+        }
+
+        RevealEvent event = new RevealEvent();
+        event.begin();
+        long started = Metrics.ENABLED ? System.nanoTime() : 0;
+        beginAction();
+        int[] queue = revealQueue();
+        int tail = cascade(start, queue, 0);
+        endAction(Cell.OPENED, queue, tail);
+        if (Metrics.ENABLED) {
+            recordCascade(started, tail);
+        }
+        commitReveal(event, row, column, false, tail, Cell.hasMine(cell));
+        return new RevealResult(Arrays.copyOf(queue, tail), Cell.hasMine(cell), getResult());
+    }
+
+    /**
+     * Открывает всех закрытых соседей открытой клетки с числом, если вокруг неё
+     * уже стоит столько же флагов. Иначе ничего не делает. Отменяется как одно действие.
+     */
+    public RevealResult chord(int row, int column) {
+        int index = getCellIndex(row, column);
+        byte cell = cells[index];
+        if (!Cell.isOpened(cell) || Cell.neighborMineCount(cell) == 0 || state.isOver()) {
+            return new RevealResult(new int[0], false, getResult());
+        }
 
-        if (!tile.isOpened() && !tile.isFlagged()) {
-            tile.setOpened(true);
-            openedTiles++;
+        Adjacency adjacency = getAdjacency();
+        int flags = 0;
+        for (int k = adjacency.start(index), end = adjacency.end(index); k < end; k++) {
+            if (Cell.isFlagged(cells[adjacency.at(k)])) {
+                flags++;
+            }
+        }
+        if (flags != Cell.neighborMineCount(cell)) {
+            return new RevealResult(new int[0], false, getResult());
+        }
+
+        RevealEvent event = new RevealEvent();
+        event.begin();
+        long started = Metrics.ENABLED ? System.nanoTime() : 0;
+        beginAction();
+        int[] queue = revealQueue();
+        int tail = 0;
+        boolean hitMine = false;
+        for (int k = adjacency.start(index), end = adjacency.end(index); k < end; k++) {
+            int neighbor = adjacency.at(k);
+            byte neighborCell = cells[neighbor];
+            if (!Cell.isOpened(neighborCell) && !Cell.isFlagged(neighborCell)) {
+                hitMine |= Cell.hasMine(neighborCell);
+                tail = cascade(neighbor, queue, tail);
+            }
         }
+        endAction(Cell.OPENED, queue, tail);
+        if (Metrics.ENABLED) {
+            recordCascade(started, tail);
+        }
+        commitReveal(event, row, column, true, tail, hitMine);
+        return new RevealResult(Arrays.copyOf(queue, tail), hitMine, getResult());
+    }
+
+    private static void recordCascade(long started, int cells) {
+        Metrics.CASCADE_NANOS.record(System.nanoTime() - started);
+        Metrics.CASCADE_CELLS.record(cells);
+    }
+
+    private static void commitReveal(RevealEvent event, int row, int column, boolean chord, int cells, boolean hitMine) {
+        if (event.shouldCommit()) {
+            event.row = row;
+            event.column = column;
+            event.chord = chord;
+            event.cellsOpened = cells;
+            event.hitMine = hitMine;
+            event.commit();
+        }
+    }
+
+    private int[] revealQueue() {
+        if (revealQueue == null) {
+            revealQueue = new int[cells.length];
+        }
+        return revealQueue;
+    }
+
+    // Открывает закрытую клетку start с каскадом, дописывая открытые клетки в queue с позиции tail
+    private int cascade(int start, int[] queue, int tail) {
+        Adjacency adjacency = getAdjacency();
+        int head = tail;
+
+        // Клетка помечается открытой при постановке в очередь, так что каждая попадает в неё один раз
+        byte cell = cells[start];
+        cells[start] = (byte) (cell | Cell.OPENED);
+        onOpened(cell);
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int index = queue[head++];
+            byte current = cells[index];
+            if (Cell.hasMine(current) || Cell.neighborMineCount(current) != 0) {
+                continue;
+            }
+
+            for (int k = adjacency.start(index), end = adjacency.end(index); k < end; k++) {
+                int neighbor = adjacency.at(k);
+                byte neighborCell = cells[neighbor];
+                if (!Cell.isOpened(neighborCell) && !Cell.isFlagged(neighborCell)) {
+                    cells[neighbor] = (byte) (neighborCell | Cell.OPENED);
+                    onOpened(neighborCell);
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return tail;
     }
 
     public void flagTile(int row, int column) {
-        Tile tile = grid[row][column];
-        if (!tile.isOpened()) {
-            tile.setFlagged(true);
+        int index = getCellIndex(row, column);
+        byte cell = cells[index];
+        if (!Cell.isOpened(cell) && !Cell.isFlagged(cell)) {
+            beginAction();
+            cells[index] = (byte) (cell | Cell.FLAGGED);
             flaggedTilesCount++;
-            if (tile.isFlagged() && tile.hasMine()) {
+            if (state == GameState.READY) {
+                state = GameState.PLAYING;
+            }
+            if (Cell.hasMine(cell)) {
                 correctFlags++;
-
             }
+            endAction(Cell.FLAGGED, new int[]{index}, 1);
         }
     }
 
     public void unflagTile(int row, int column) {
-        Tile tile = grid[row][column];
-        if (tile.isFlagged()) {
-            tile.setFlagged(false);
-            if (!tile.isFlagged() && tile.hasMine()) {
+        int index = getCellIndex(row, column);
+        byte cell = cells[index];
+        if (Cell.isFlagged(cell)) {
+            beginAction();
+            cells[index] = (byte) (cell & ~Cell.FLAGGED);
+            if (Cell.hasMine(cell)) {
                 correctFlags--;
             }
             flaggedTilesCount--;
+            endAction(Cell.FLAGGED, new int[]{index}, 1);
         }
     }
 
-    public boolean winCase() {
-        if (correctFlags == mines && openedTiles == (rows * columns) - mines) {
-            result = true;
+    /**
+     * Отменяет последнее действие и возвращает индексы клеток, которые оно меняло.
+     * Если отменять нечего, возвращается пустой массив.
+     */
+    public int[] undo() {
+        int[] entry = history.popUndo();
+        if (entry == null) {
+            return new int[0];
         }
-        return result;
+        toggle(entry);
+        restoreCounters(entry, UndoLog.BEFORE);
+        return Arrays.copyOfRange(entry, UndoLog.CELLS, entry.length);
     }
 
-    public boolean isValidPosition(int row, int col) {
-        return row >= 0 && row < rows && col >= 0 && col < columns;
+    // Повторяет последнее отменённое действие; новое действие после отмены сбрасывает повтор
+    public int[] redo() {
+        int[] entry = history.popRedo();
+        if (entry == null) {
+            return new int[0];
+        }
+        toggle(entry);
+        restoreCounters(entry, UndoLog.AFTER);
+        return Arrays.copyOfRange(entry, UndoLog.CELLS, entry.length);
     }
 
-    public void assignNeighborMineCounts() {
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < columns; col++) {
-                Tile tile = grid[row][col];
+    public boolean canUndo() {
+        return history.canUndo();
+    }
 
-                if (!tile.hasMine()) {
-                    tile.setNeighborMineCount(0);
+    public boolean canRedo() {
+        return history.canRedo();
+    }
 
-                    int count = countNeighborMines(row, col);
-                    tile.setNeighborMineCount(count);
-                }
+    public int getUndoLimit() {
+        return history.getLimit();
+    }
+
+    // Сколько последних действий можно отменить; 0 отключает историю
+    public void setUndoLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Глубина отмены не может быть отрицательной");
+        }
+        history.setLimit(limit);
+    }
+
+    private void beginAction() {
+        writeCounters(countersBefore, 0);
+    }
+
+    // Запоминает действие, изменившее бит bit в клетках changed[0..count)
+    private void endAction(int bit, int[] changed, int count) {
+        if (count == 0) {
+            return;
+        }
+        int[] entry = new int[UndoLog.CELLS + count];
+        entry[UndoLog.BIT] = bit;
+        System.arraycopy(countersBefore, 0, entry, UndoLog.BEFORE, UndoLog.COUNTERS);
+        writeCounters(entry, UndoLog.AFTER);
+        System.arraycopy(changed, 0, entry, UndoLog.CELLS, count);
+        history.push(entry);
+    }
+
+    private void toggle(int[] entry) {
+        int bit = entry[UndoLog.BIT];
+        for (int i = UndoLog.CELLS; i < entry.length; i++) {
+            cells[entry[i]] ^= bit;
+        }
+    }
+
+    private void writeCounters(int[] target, int offset) {
+        target[offset] = state.ordinal();
+        target[offset + 1] = openedTiles;
+        target[offset + 2] = openedSafeTiles;
+        target[offset + 3] = flaggedTilesCount;
+        target[offset + 4] = correctFlags;
+    }
+
+    private void restoreCounters(int[] source, int offset) {
+        state = GameState.values()[source[offset]];
+        openedTiles = source[offset + 1];
+        openedSafeTiles = source[offset + 2];
+        flaggedTilesCount = source[offset + 3];
+        correctFlags = source[offset + 4];
+    }
+
+    // Счётчики и состояние обновляются при каждом открытии, поэтому проверка исхода - O(1)
+    private void onOpened(byte cell) {
+        openedTiles++;
+        if (Cell.hasMine(cell)) {
+            if (!state.isOver()) {
+                state = GameState.LOST;
             }
+            return;
+        }
+
+        openedSafeTiles++;
+        if (state.isOver()) {
+            return;
         }
+        state = openedSafeTiles == cells.length - mines ? GameState.WON : GameState.PLAYING;
     }
 
-    private int countNeighborMines(int row, int col) {
-        int count = 0;
+    public boolean isValidPosition(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < columns;
+    }
 
-        int[][] neighborOffsets = getNeighborOffsets(row);
+    // До расстановки мин все счётчики нулевые
+    public void assignNeighborMineCounts() {
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = Cell.withNeighborMineCount(cells[i], 0);
+        }
+        incrementNeighborCounts();
+    }
 
-        for (int[] offset : neighborOffsets) {
-            int newRow = row + offset[0];
-            int newCol = col + offset[1];
-            if (isValidPosition(newRow, newCol) && grid[newRow][newCol].hasMine()) {
-                count++;
+    // Счётчики должны быть обнулены: каждая мина добавляет единицу своим соседям, итого O(mines)
+    private void incrementNeighborCounts() {
+        if (!generated) {
+            return; // mineCells ещё не заполнен
+        }
+        Adjacency adjacency = getAdjacency();
+        for (int mine : mineCells) {
+            for (int k = adjacency.start(mine), end = adjacency.end(mine); k < end; k++) {
+                cells[adjacency.at(k)] += 1 << Cell.COUNT_SHIFT;
             }
         }
+    }
+
+    public GameState getState() {
+        return state;
+    }
 
-        return count;
+    public boolean isGameOver() {
+        return state.isOver();
     }
 
     public boolean getResult() {
-        return winCase();
+        return state == GameState.WON;
     }
 
     public void resetBoard() {
+        resetBoard(new SplittableRandom().nextLong());
+    }
+
+    public void resetBoard(long seed) {
+        if (fixedLayout) {
+            throw new IllegalStateException("Расстановка мин задана явно и не восстанавливается по зерну; "
+                    + "для новой партии нужна новая доска");
+        }
+        this.seed = seed;
         correctFlags = 0;
         openedTiles = 0;
+        openedSafeTiles = 0;
         flaggedTilesCount = 0;
-        initializeGrid();
-        assignNeighborMineCounts();
-        result = false;
+        history.clear();
+        // Только очистка: новые мины расставит первое открытие
+        Arrays.fill(cells, (byte) 0);
+        Arrays.fill(mineCells, -1);
+        generated = false;
+        state = GameState.READY;
+    }
+
+    public long getSeed() {
+        return seed;
     }
 
     public int getMines() {
         return this.mines;
     }
 
+    // Открывает все закрытые клетки без флагов одним действием
     public void openAll() {
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < columns; col++) {
-                openTile(row, col);
+        if (!generated) {
+            placeMines(-1);
+        }
+        beginAction();
+        int[] changed = revealQueue();
+        int count = 0;
+        for (int index = 0; index < cells.length; index++) {
+            byte cell = cells[index];
+            if (!Cell.isOpened(cell) && !Cell.isFlagged(cell)) {
+                cells[index] = (byte) (cell | Cell.OPENED);
+                onOpened(cell);
+                changed[count++] = index;
             }
         }
+        endAction(Cell.OPENED, changed, count);
     }
 
     public int getFlaggedTilesCount() {
@@ -182,4 +663,17 @@ public class Board {
     public int getOpenedTilesCount() {
         return openedTiles;
     }
+
+    public int getCorrectFlagsCount() {
+        return correctFlags;
+    }
+
+    int getOpenedSafeTilesCount() {
+        return openedSafeTiles;
+    }
+
+    // Прямой доступ к упакованным клеткам для снимков, без копирования
+    byte[] cells() {
+        return cells;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Двоичный снимок доски. Заголовок фиксированного размера, затем по одному байту на клетку
+ * в том же упакованном виде, что и в памяти, поэтому сохранение и загрузка сводятся
+ * к копированию массива в отображённый в память файл и обратно.
+ * <pre>
+ * смещение  размер  поле
+ *  0        4       сигнатура "HXMS"
+ *  4        2       версия формата
+ *  6        1       состояние игры (номер {@link GameState})
+ *  7        1       флаги: бит 0 - мины уже расставлены, бит 1 - расстановка задана явно
+ *  8        4       строки
+ * 12        4       столбцы
+ * 16        4       мины
+ * 20        8       зерно
+ * 28        4       открыто клеток
+ * 32        4       открыто безопасных клеток
+ * 36        4       флагов
+ * 40        4       верных флагов
+ * 44        4       резерв
+ * 48        n       клетки, n = строки * столбцы
+ * </pre>
+ * Счётчики и состояние из заголовка при загрузке сверяются с клетками.
+ */
+public final class BoardSnapshot {
+    static final int MAGIC = 0x48584D53; // "HXMS"
+    static final short VERSION = 2;
+    private static final int GENERATED = 1;
+    private static final int FIXED_LAYOUT = 2;
+    static final int HEADER_BYTES = 48;
+
+    private BoardSnapshot() {
+    }
+
+    public static long size(Board board) {
+        return HEADER_BYTES + (long) board.getCellCount();
+    }
+
+    public static void save(Board board, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size(board));
+            write(board, buffer);
+            buffer.force();
+        }
+    }
+
+    public static Board load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Пишет снимок с текущей позиции буфера
+    public static void write(Board board, ByteBuffer buffer) {
+        buffer.putInt(MAGIC)
+                .putShort(VERSION)
+                .put((byte) board.getState().ordinal())
+                .put((byte) ((board.isGenerated() ? GENERATED : 0) | (board.hasFixedLayout() ? FIXED_LAYOUT : 0)))
+                .putInt(board.getHeight())
+                .putInt(board.getWidth())
+                .putInt(board.getMines())
+                .putLong(board.getSeed())
+                .putInt(board.getOpenedTilesCount())
+                .putInt(board.getOpenedSafeTilesCount())
+                .putInt(board.getFlaggedTilesCount())
+                .putInt(board.getCorrectFlagsCount())
+                .putInt(0)
+                .put(board.cells());
+    }
+
+    // Читает снимок с текущей позиции буфера
+    public static Board read(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Файл не является сохранением поля");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Неподдерживаемая версия сохранения: " + version);
+        }
+        int stateOrdinal = buffer.get();
+        int flags = buffer.get();
+        boolean generated = (flags & GENERATED) != 0;
+        boolean fixedLayout = (flags & FIXED_LAYOUT) != 0;
+        int rows = buffer.getInt();
+        int columns = buffer.getInt();
+        int mines = buffer.getInt();
+        long seed = buffer.getLong();
+        int openedTiles = buffer.getInt();
+        int openedSafeTiles = buffer.getInt();
+        int flaggedTilesCount = buffer.getInt();
+        int correctFlags = buffer.getInt();
+        buffer.getInt();
+
+        long cellCount = (long) rows * columns;
+        if (rows <= 0 || columns <= 0 || cellCount > Integer.MAX_VALUE || buffer.remaining() < cellCount
+                || mines < 0 || mines > cellCount || stateOrdinal < 0 || stateOrdinal >= GameState.values().length) {
+            throw new IOException("Повреждённое сохранение поля");
+        }
+
+        byte[] cells = new byte[(int) cellCount];
+        buffer.get(cells);
+        try {
+            return new Board(rows, columns, mines, seed, cells, generated, fixedLayout,
+                    GameState.values()[stateOrdinal], openedTiles, openedSafeTiles, flaggedTilesCount, correctFlags);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Повреждённое сохранение поля", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package model;
+
+/**
+ * Упакованное состояние клетки: один байт на клетку.
+ * Бит 0 - мина, бит 1 - открыта, бит 2 - флаг, биты 3-5 - количество мин по соседству.
+ */
+final class Cell {
+    static final int MINE = 1;
+    static final int OPENED = 1 << 1;
+    static final int FLAGGED = 1 << 2;
+    static final int COUNT_SHIFT = 3;
+    static final int COUNT_MASK = 0b111 << COUNT_SHIFT;
+
+    private Cell() {
+    }
+
+    static boolean hasMine(byte cell) {
+        return (cell & MINE) != 0;
+    }
+
+    static boolean isOpened(byte cell) {
+        return (cell & OPENED) != 0;
+    }
+
+    static boolean isFlagged(byte cell) {
+        return (cell & FLAGGED) != 0;
+    }
+
+    static int neighborMineCount(byte cell) {
+        return (cell & COUNT_MASK) >>> COUNT_SHIFT;
+    }
+
+    static byte with(byte cell, int bit, boolean value) {
+        return (byte) (value ? cell | bit : cell & ~bit);
+    }
+
+    static byte withNeighborMineCount(byte cell, int count) {
+        return (byte) ((cell & ~COUNT_MASK) | ((count << COUNT_SHIFT) & COUNT_MASK));
+    }
+}
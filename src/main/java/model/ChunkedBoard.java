@@ -0,0 +1,597 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Бесконечное поле для режима "без границ". Поле разбито на квадратные куски
+ * {@value #CHUNK_SIZE}x{@value #CHUNK_SIZE}, которые создаются по требованию. Мины куска
+ * однозначно выводятся из общего зерна и координат куска, поэтому нетронутый кусок можно
+ * выбросить и позже построить заново. Число живых кусков ограничено: при превышении
+ * бюджета давно не использованные куски с ходами игрока сжимаются до битовых масок,
+ * а нетронутые просто удаляются. Полностью решённые куски без флагов занимают один бит
+ * в общей карте области 64x64 куска. Сжатых кусков в памяти не больше
+ * {@value #COMPACTED_PER_LIVE} на каждый живой, лишние выгружаются во временный файл.
+ * Ограничена только память под сами куски: индекс выгруженных кусков остаётся в памяти
+ * и растёт вместе с исследованной областью, примерно на 32 байта на кусок (против
+ * 256 байт сжатого куска и 1 КБ живого).
+ * <p>
+ * Количество мин по соседству не хранится, а считается по битам мин соседних клеток,
+ * поэтому на границах кусков оно верно без генерации всей окрестности заранее.
+ * Клетка (0, 0) и её соседи всегда свободны от мин.
+ */
+public class ChunkedBoard implements AutoCloseable {
+    public static final int CHUNK_SIZE = 32; // чётный размер сохраняет чётность строк внутри куска
+    private static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+    public static final int DEFAULT_MAX_CASCADE = 1 << 20;
+    private static final int COMPACTED_PER_LIVE = 4;
+    private static final int REGION_SHIFT = 6; // область решённых кусков - 64x64 куска
+    private static final int REGION_WORDS = (1 << (2 * REGION_SHIFT)) / 64;
+
+    private final long seed;
+    private final int minesPerChunk;
+    private final int maxLiveChunks;
+    private final int maxCascade;
+    private final LinkedHashMap<Long, Chunk> liveChunks;
+    private final int maxCompactedChunks;
+    private final LinkedHashMap<Long, CompactChunk> compactedChunks;
+    private final Map<Long, long[]> resolvedRegions = new HashMap<>();
+    private final SpillIndex spilledChunks = new SpillIndex();
+    private final ByteBuffer spillBuffer = ByteBuffer.allocate(CompactChunk.BYTES);
+    private final int[] mineBuffer;
+    private FileChannel spillFile;
+    private long resolvedChunkCount;
+
+    private GameState state = GameState.READY;
+    private long openedTiles;
+    private long flaggedTilesCount;
+    // Очередь каскада; то, что не уложилось в maxCascade, ждёт следующего вызова reveal
+    private int[] queueRows = new int[1024];
+    private int[] queueColumns = new int[1024];
+    private int queueHead;
+    private int queueTail;
+
+    public ChunkedBoard(long seed, double density, int maxLiveChunks) {
+        this(seed, density, maxLiveChunks, DEFAULT_MAX_CASCADE);
+    }
+
+    /**
+     * @param maxCascade сколько клеток каскад открывает за один вызов {@link #reveal}
+     */
+    public ChunkedBoard(long seed, double density, int maxLiveChunks, int maxCascade) {
+        // ниже ~10% области без мин перколируют и каскад открытия становится бесконечным
+        if (density < 0.12 || density > 0.9) {
+            throw new IllegalArgumentException("Плотность мин должна быть от 0.12 до 0.9");
+        }
+        if (maxLiveChunks < 16) {
+            throw new IllegalArgumentException("Бюджет кусков должен быть не меньше 16");
+        }
+        this.seed = seed;
+        this.minesPerChunk = (int) Math.round(density * CHUNK_CELLS);
+        this.maxLiveChunks = maxLiveChunks;
+        this.maxCascade = Math.max(1, maxCascade);
+        this.mineBuffer = new int[minesPerChunk];
+        this.liveChunks = new LinkedHashMap<>(maxLiveChunks * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+                if (size() <= ChunkedBoard.this.maxLiveChunks) {
+                    return false;
+                }
+                evict(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+        this.maxCompactedChunks = maxLiveChunks * COMPACTED_PER_LIVE;
+        this.compactedChunks = new LinkedHashMap<>(maxCompactedChunks * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CompactChunk> eldest) {
+                if (size() <= ChunkedBoard.this.maxCompactedChunks) {
+                    return false;
+                }
+                spill(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public static long cellKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    public static int rowOf(long cellKey) {
+        return (int) (cellKey >> 32);
+    }
+
+    public static int columnOf(long cellKey) {
+        return (int) cellKey;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public GameState getState() {
+        return state;
+    }
+
+    public long getOpenedTilesCount() {
+        return openedTiles;
+    }
+
+    public long getFlaggedTilesCount() {
+        return flaggedTilesCount;
+    }
+
+    public int getLiveChunkCount() {
+        return liveChunks.size();
+    }
+
+    // Сжатые куски в памяти
+    public int getCompactedChunkCount() {
+        return compactedChunks.size();
+    }
+
+    // Куски, хотя бы раз выгруженные на диск
+    public int getSpilledChunkCount() {
+        return spilledChunks.size();
+    }
+
+    public long getResolvedChunkCount() {
+        return resolvedChunkCount;
+    }
+
+    // Закрывает и удаляет файл выгруженных кусков
+    @Override
+    public void close() {
+        if (spillFile != null) {
+            try {
+                spillFile.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось закрыть файл кусков", e);
+            }
+            spillFile = null;
+        }
+    }
+
+    public boolean isOpened(int row, int column) {
+        return Cell.isOpened(cell(row, column));
+    }
+
+    public boolean isFlagged(int row, int column) {
+        return Cell.isFlagged(cell(row, column));
+    }
+
+    public boolean hasMine(int row, int column) {
+        return Cell.hasMine(cell(row, column));
+    }
+
+    public int getNeighborMineCount(int row, int column) {
+        int[][] offsets = (row & 1) == 0 ? Adjacency.EVEN_ROW_OFFSETS : Adjacency.ODD_ROW_OFFSETS;
+        int count = 0;
+        for (int[] offset : offsets) {
+            if (Cell.hasMine(cell(row + offset[0], column + offset[1]))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void flagTile(int row, int column) {
+        Chunk chunk = chunk(row, column);
+        int local = localIndex(row, column);
+        byte cell = chunk.cells[local];
+        if (!Cell.isOpened(cell) && !Cell.isFlagged(cell)) {
+            chunk.cells[local] = (byte) (cell | Cell.FLAGGED);
+            chunk.touched = true;
+            flaggedTilesCount++;
+            if (state == GameState.READY) {
+                state = GameState.PLAYING;
+            }
+        }
+    }
+
+    public void unflagTile(int row, int column) {
+        Chunk chunk = chunk(row, column);
+        int local = localIndex(row, column);
+        byte cell = chunk.cells[local];
+        if (Cell.isFlagged(cell)) {
+            chunk.cells[local] = (byte) (cell & ~Cell.FLAGGED);
+            flaggedTilesCount--;
+        }
+    }
+
+    /**
+     * Открывает клетку и каскадно её окрестность, переходя через границы кусков.
+     * Каскад открывает примерно maxCascade клеток за вызов; необработанная
+     * часть очереди остаётся на доске ({@link #hasPendingCascade()}) и продолжается
+     * следующим вызовом reveal на любой клетке, в том числе уже открытой. Возвращает
+     * упакованные {@link #cellKey} координаты открытых клеток.
+     */
+    public long[] reveal(int row, int column) {
+        if (state.isOver()) {
+            return new long[0];
+        }
+        Chunk startChunk = chunk(row, column);
+        int startLocal = localIndex(row, column);
+        byte start = startChunk.cells[startLocal];
+
+        long[] opened = new long[16];
+        int openedCount = 0;
+
+        if (!Cell.isOpened(start) && !Cell.isFlagged(start)) {
+            open(startChunk, startLocal, start);
+            opened[openedCount++] = cellKey(row, column);
+            if (Cell.hasMine(start)) {
+                return Arrays.copyOf(opened, openedCount);
+            }
+            enqueue(row, column);
+        }
+
+        while (queueHead < queueTail && openedCount < maxCascade) {
+            int currentRow = queueRows[queueHead];
+            int currentColumn = queueColumns[queueHead++];
+            if (getNeighborMineCount(currentRow, currentColumn) != 0) {
+                continue;
+            }
+
+            int[][] offsets = (currentRow & 1) == 0 ? Adjacency.EVEN_ROW_OFFSETS : Adjacency.ODD_ROW_OFFSETS;
+            for (int[] offset : offsets) {
+                int newRow = currentRow + offset[0];
+                int newColumn = currentColumn + offset[1];
+                Chunk chunk = chunk(newRow, newColumn);
+                int local = localIndex(newRow, newColumn);
+                byte cell = chunk.cells[local];
+                if (Cell.isOpened(cell) || Cell.isFlagged(cell)) {
+                    continue;
+                }
+
+                open(chunk, local, cell);
+                if (openedCount == opened.length) {
+                    opened = Arrays.copyOf(opened, openedCount * 2);
+                }
+                opened[openedCount++] = cellKey(newRow, newColumn);
+                enqueue(newRow, newColumn);
+            }
+        }
+        if (queueHead == queueTail) {
+            queueHead = 0;
+            queueTail = 0;
+        }
+
+        return Arrays.copyOf(opened, openedCount);
+    }
+
+    // Каскад был прерван ограничением и продолжится следующим вызовом reveal
+    public boolean hasPendingCascade() {
+        return queueHead < queueTail;
+    }
+
+    private void enqueue(int row, int column) {
+        if (queueTail == queueRows.length) {
+            // очередь сдвигается в начало, а растёт только если она действительно полна
+            int pending = queueTail - queueHead;
+            int capacity = pending * 2 > queueRows.length ? queueRows.length * 2 : queueRows.length;
+            queueRows = shift(queueRows, queueHead, pending, capacity);
+            queueColumns = shift(queueColumns, queueHead, pending, capacity);
+            queueHead = 0;
+            queueTail = pending;
+        }
+        queueRows[queueTail] = row;
+        queueColumns[queueTail++] = column;
+    }
+
+    private static int[] shift(int[] queue, int head, int pending, int capacity) {
+        int[] target = capacity == queue.length ? queue : new int[capacity];
+        System.arraycopy(queue, head, target, 0, pending);
+        return target;
+    }
+
+    private void open(Chunk chunk, int local, byte cell) {
+        chunk.cells[local] = (byte) (cell | Cell.OPENED);
+        chunk.touched = true;
+        openedTiles++;
+        if (Cell.hasMine(cell)) {
+            state = GameState.LOST;
+        } else if (state == GameState.READY) {
+            state = GameState.PLAYING;
+        }
+    }
+
+    private byte cell(int row, int column) {
+        return chunk(row, column).cells[localIndex(row, column)];
+    }
+
+    private static int localIndex(int row, int column) {
+        return ((row & (CHUNK_SIZE - 1)) << CHUNK_SHIFT) | (column & (CHUNK_SIZE - 1));
+    }
+
+    private static long chunkKey(int chunkRow, int chunkColumn) {
+        return ((long) chunkRow << 32) | (chunkColumn & 0xFFFFFFFFL);
+    }
+
+    private Chunk chunk(int row, int column) {
+        int chunkRow = row >> CHUNK_SHIFT;
+        int chunkColumn = column >> CHUNK_SHIFT;
+        long key = chunkKey(chunkRow, chunkColumn);
+
+        Chunk chunk = liveChunks.get(key);
+        if (chunk == null) {
+            chunk = generate(chunkRow, chunkColumn);
+            CompactChunk compact = takeCompacted(key);
+            if (compact != null) {
+                compact.restore(chunk.cells);
+                chunk.touched = true;
+            }
+            liveChunks.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    private Chunk generate(int chunkRow, int chunkColumn) {
+        Chunk chunk = new Chunk();
+        long chunkSeed = seed ^ (chunkRow * 0x9E3779B97F4A7C15L) ^ (chunkColumn * 0xC2B2AE3D27D4EB4FL);
+        MinePlacer.place(chunk.cells, minesPerChunk, new SplittableRandom(chunkSeed), mineBuffer);
+
+        // Стартовая клетка (0, 0) и её соседи свободны
+        clearIfInside(chunk, chunkRow, chunkColumn, 0, 0);
+        for (int[] offset : Adjacency.EVEN_ROW_OFFSETS) {
+            clearIfInside(chunk, chunkRow, chunkColumn, offset[0], offset[1]);
+        }
+        return chunk;
+    }
+
+    private static void clearIfInside(Chunk chunk, int chunkRow, int chunkColumn, int row, int column) {
+        if (row >> CHUNK_SHIFT == chunkRow && column >> CHUNK_SHIFT == chunkColumn) {
+            int local = localIndex(row, column);
+            chunk.cells[local] = (byte) (chunk.cells[local] & ~Cell.MINE);
+        }
+    }
+
+    private void evict(long key, Chunk chunk) {
+        if (!chunk.touched) {
+            return;
+        }
+        CompactChunk compact = CompactChunk.of(chunk.cells);
+        if (compact == CompactChunk.RESOLVED) {
+            setResolved(key, true);
+        } else {
+            compactedChunks.put(key, compact);
+        }
+    }
+
+    /**
+     * Забирает сохранённое состояние куска. Порядок важен: копия на диске не удаляется
+     * при чтении и может устареть, поэтому она используется только если более свежих нет.
+     */
+    private CompactChunk takeCompacted(long key) {
+        if (setResolved(key, false)) {
+            return CompactChunk.RESOLVED;
+        }
+        CompactChunk compact = compactedChunks.remove(key);
+        if (compact != null) {
+            return compact;
+        }
+        long offset = spilledChunks.get(key);
+        return offset < 0 ? null : readSpilled(offset);
+    }
+
+    // Ставит или снимает бит решённого куска и возвращает прежнее значение
+    private boolean setResolved(long key, boolean resolved) {
+        int chunkRow = (int) (key >> 32);
+        int chunkColumn = (int) key;
+        long regionKey = chunkKey(chunkRow >> REGION_SHIFT, chunkColumn >> REGION_SHIFT);
+        int bit = ((chunkRow & ((1 << REGION_SHIFT) - 1)) << REGION_SHIFT) | (chunkColumn & ((1 << REGION_SHIFT) - 1));
+
+        long[] region = resolvedRegions.get(regionKey);
+        boolean was = region != null && (region[bit >>> 6] & (1L << bit)) != 0;
+        if (was == resolved) {
+            return was;
+        }
+        if (resolved) {
+            if (region == null) {
+                region = new long[REGION_WORDS];
+                resolvedRegions.put(regionKey, region);
+            }
+            region[bit >>> 6] |= 1L << bit;
+            resolvedChunkCount++;
+        } else {
+            region[bit >>> 6] &= ~(1L << bit);
+            resolvedChunkCount--;
+            if (Arrays.stream(region).allMatch(word -> word == 0)) {
+                resolvedRegions.remove(regionKey);
+            }
+        }
+        return was;
+    }
+
+    // Повторная выгрузка куска перезаписывает его прежнюю запись, так что файл растёт только на новых кусках
+    private void spill(long key, CompactChunk compact) {
+        try {
+            if (spillFile == null) {
+                spillFile = FileChannel.open(Files.createTempFile("hex-minesweeper-chunks", ".bin"),
+                        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            long offset = spilledChunks.get(key);
+            if (offset < 0) {
+                offset = (long) spilledChunks.size() * CompactChunk.BYTES;
+                spilledChunks.put(key, offset);
+            }
+            spillBuffer.clear();
+            compact.write(spillBuffer);
+            spillBuffer.flip();
+            while (spillBuffer.hasRemaining()) {
+                offset += spillFile.write(spillBuffer, offset);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось выгрузить кусок на диск", e);
+        }
+    }
+
+    private CompactChunk readSpilled(long offset) {
+        try {
+            spillBuffer.clear();
+            while (spillBuffer.hasRemaining()) {
+                if (spillFile.read(spillBuffer, offset + spillBuffer.position()) < 0) {
+                    throw new IOException("Файл кусков обрезан");
+                }
+            }
+            spillBuffer.flip();
+            return CompactChunk.read(spillBuffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать кусок с диска", e);
+        }
+    }
+
+    private static final class Chunk {
+        final byte[] cells = new byte[CHUNK_CELLS];
+        boolean touched;
+    }
+
+    /**
+     * Сжатое состояние куска: только открытые клетки и флаги, мины восстанавливаются из зерна.
+     * Полностью решённый кусок без флагов хранится как общий пустой маркер.
+     */
+    private static final class CompactChunk {
+        private static final CompactChunk RESOLVED = new CompactChunk(null, null);
+        private static final int WORDS = CHUNK_CELLS / 64;
+        static final int BYTES = 2 * WORDS * Long.BYTES;
+
+        private final long[] opened;
+        private final long[] flagged;
+
+        private CompactChunk(long[] opened, long[] flagged) {
+            this.opened = opened;
+            this.flagged = flagged;
+        }
+
+        static CompactChunk of(byte[] cells) {
+            long[] opened = new long[WORDS];
+            long[] flagged = new long[WORDS];
+            boolean resolved = true;
+            boolean anyFlag = false;
+            for (int i = 0; i < CHUNK_CELLS; i++) {
+                byte cell = cells[i];
+                if (Cell.isOpened(cell)) {
+                    opened[i >>> 6] |= 1L << i;
+                    resolved &= !Cell.hasMine(cell);
+                } else if (!Cell.hasMine(cell)) {
+                    resolved = false;
+                }
+                if (Cell.isFlagged(cell)) {
+                    flagged[i >>> 6] |= 1L << i;
+                    anyFlag = true;
+                }
+            }
+            return resolved && !anyFlag ? RESOLVED : new CompactChunk(opened, flagged);
+        }
+
+        void write(ByteBuffer buffer) {
+            for (long word : opened) {
+                buffer.putLong(word);
+            }
+            for (long word : flagged) {
+                buffer.putLong(word);
+            }
+        }
+
+        static CompactChunk read(ByteBuffer buffer) {
+            long[] opened = new long[WORDS];
+            long[] flagged = new long[WORDS];
+            for (int i = 0; i < WORDS; i++) {
+                opened[i] = buffer.getLong();
+            }
+            for (int i = 0; i < WORDS; i++) {
+                flagged[i] = buffer.getLong();
+            }
+            return new CompactChunk(opened, flagged);
+        }
+
+        void restore(byte[] cells) {
+            for (int i = 0; i < CHUNK_CELLS; i++) {
+                if (this == RESOLVED) {
+                    if (!Cell.hasMine(cells[i])) {
+                        cells[i] |= Cell.OPENED;
+                    }
+                    continue;
+                }
+                if ((opened[i >>> 6] & (1L << i)) != 0) {
+                    cells[i] |= Cell.OPENED;
+                }
+                if ((flagged[i >>> 6] & (1L << i)) != 0) {
+                    cells[i] |= Cell.FLAGGED;
+                }
+            }
+        }
+    }
+
+    /**
+     * Смещения выгруженных кусков: открытая адресация на двух массивах long, без
+     * объекта на запись. Записи только добавляются.
+     */
+    private static final class SpillIndex {
+        private long[] keys = new long[64];
+        private long[] offsets = emptyOffsets(64);
+        private int size;
+
+        private static long[] emptyOffsets(int length) {
+            long[] result = new long[length];
+            Arrays.fill(result, -1);
+            return result;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); offsets[i] >= 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return offsets[i];
+                }
+            }
+            return -1;
+        }
+
+        // Ключа в таблице ещё нет
+        void put(long key, long offset) {
+            if ((size + 1) * 2 > keys.length) {
+                long[] oldKeys = keys;
+                long[] oldOffsets = offsets;
+                keys = new long[oldKeys.length * 2];
+                offsets = emptyOffsets(oldKeys.length * 2);
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldOffsets[i] >= 0) {
+                        insert(oldKeys[i], oldOffsets[i]);
+                    }
+                }
+            }
+            insert(key, offset);
+            size++;
+        }
+
+        private void insert(long key, long offset) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (offsets[i] >= 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            offsets[i] = offset;
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+}
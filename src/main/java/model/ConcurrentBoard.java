@@ -0,0 +1,237 @@
+package model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Доска для совместной игры, с которой одновременно работают несколько потоков.
+ * Клетки хранятся в том же упакованном виде, что и в {@link Board}, но каждый переход
+ * (открытие, флаг) - это CAS одного байта, поэтому блокировок нет совсем: каскады в
+ * разных частях поля идут параллельно, а на пересечении каждую клетку открывает ровно
+ * один поток - тот, чей CAS прошёл первым. Счётчики - {@link LongAdder}.
+ * <p>
+ * Мины должны быть расставлены заранее: доска строится из сгенерированной {@link Board}.
+ * Отмены ходов нет.
+ */
+public class ConcurrentBoard {
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final byte[] cells;
+    private final Adjacency adjacency;
+    private final int rows;
+    private final int columns;
+    private final int mines;
+    private final AtomicInteger state;
+    private final LongAdder openedTiles = new LongAdder();
+    private final LongAdder openedSafeTiles = new LongAdder();
+    private final LongAdder flaggedTilesCount = new LongAdder();
+    private final LongAdder correctFlags = new LongAdder();
+
+    public ConcurrentBoard(Board board) {
+        if (!board.isGenerated()) {
+            throw new IllegalArgumentException("На доске ещё не расставлены мины");
+        }
+        rows = board.getHeight();
+        columns = board.getWidth();
+        mines = board.getMines();
+        cells = board.cells().clone();
+        adjacency = board.getAdjacency();
+        state = new AtomicInteger(board.getState().ordinal());
+        openedTiles.add(board.getOpenedTilesCount());
+        openedSafeTiles.add(board.getOpenedSafeTilesCount());
+        flaggedTilesCount.add(board.getFlaggedTilesCount());
+        correctFlags.add(board.getCorrectFlagsCount());
+    }
+
+    public int getHeight() {
+        return rows;
+    }
+
+    public int getWidth() {
+        return columns;
+    }
+
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    public int getMines() {
+        return mines;
+    }
+
+    public int getCellIndex(int row, int column) {
+        return row * columns + column;
+    }
+
+    public boolean isValidPosition(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < columns;
+    }
+
+    public boolean isOpened(int cellIndex) {
+        return Cell.isOpened(cell(cellIndex));
+    }
+
+    public boolean isFlagged(int cellIndex) {
+        return Cell.isFlagged(cell(cellIndex));
+    }
+
+    public boolean hasMine(int cellIndex) {
+        return Cell.hasMine(cell(cellIndex));
+    }
+
+    public int getNeighborMineCount(int cellIndex) {
+        return Cell.neighborMineCount(cell(cellIndex));
+    }
+
+    private byte cell(int index) {
+        return (byte) CELLS.getVolatile(cells, index);
+    }
+
+    // Переводит закрытую клетку без флага в открытые; false, если её уже открыли или пометили
+    private boolean tryOpen(int index) {
+        byte cell = cell(index);
+        while (!Cell.isOpened(cell) && !Cell.isFlagged(cell)) {
+            byte witness = (byte) CELLS.compareAndExchange(cells, index, cell, (byte) (cell | Cell.OPENED));
+            if (witness == cell) {
+                return true;
+            }
+            cell = witness;
+        }
+        return false;
+    }
+
+    /**
+     * Открывает клетку с каскадом, как {@link Board#reveal}. В результат попадают только
+     * клетки, открытые этим вызовом; клетки, которые параллельно открыл другой игрок,
+     * каскад не продолжает.
+     */
+    public RevealResult reveal(int row, int column) {
+        int start = getCellIndex(row, column);
+        if (!tryOpen(start)) {
+            return new RevealResult(new int[0], false, getResult());
+        }
+
+        int[] queue = new int[64];
+        int head = 0;
+        int tail = 0;
+        int opened = 0;
+        int openedSafe = 0;
+        boolean hitMine = false;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int index = queue[head++];
+            byte current = cell(index);
+            opened++;
+            if (Cell.hasMine(current)) {
+                hitMine = true;
+                continue;
+            }
+            openedSafe++;
+            if (Cell.neighborMineCount(current) != 0) {
+                continue;
+            }
+
+            for (int k = adjacency.start(index), end = adjacency.end(index); k < end; k++) {
+                int neighbor = adjacency.at(k);
+                if (tryOpen(neighbor)) {
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, Math.min(cells.length, tail * 2));
+                    }
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+
+        openedTiles.add(opened);
+        openedSafeTiles.add(openedSafe);
+        if (hitMine) {
+            finish(GameState.LOST);
+        } else if (openedSafeTiles.sum() == cells.length - mines) {
+            // Суммы LongAdder не атомарны, но поток, чьё прибавление последнее, увидит полную сумму
+            finish(GameState.WON);
+        } else {
+            advance(GameState.READY, GameState.PLAYING);
+        }
+        return new RevealResult(Arrays.copyOf(queue, tail), hitMine, getResult());
+    }
+
+    public void flagTile(int row, int column) {
+        int index = getCellIndex(row, column);
+        byte cell = cell(index);
+        while (!Cell.isOpened(cell) && !Cell.isFlagged(cell)) {
+            byte witness = (byte) CELLS.compareAndExchange(cells, index, cell, (byte) (cell | Cell.FLAGGED));
+            if (witness == cell) {
+                flaggedTilesCount.increment();
+                if (Cell.hasMine(cell)) {
+                    correctFlags.increment();
+                }
+                advance(GameState.READY, GameState.PLAYING);
+                return;
+            }
+            cell = witness;
+        }
+    }
+
+    public void unflagTile(int row, int column) {
+        int index = getCellIndex(row, column);
+        byte cell = cell(index);
+        while (Cell.isFlagged(cell)) {
+            byte witness = (byte) CELLS.compareAndExchange(cells, index, cell, (byte) (cell & ~Cell.FLAGGED));
+            if (witness == cell) {
+                flaggedTilesCount.decrement();
+                if (Cell.hasMine(cell)) {
+                    correctFlags.decrement();
+                }
+                return;
+            }
+            cell = witness;
+        }
+    }
+
+    // Конец игры необратим: первый зафиксированный исход остаётся
+    private void finish(GameState result) {
+        int current = state.get();
+        while (!GameState.values()[current].isOver()) {
+            if (state.compareAndSet(current, result.ordinal())) {
+                return;
+            }
+            current = state.get();
+        }
+    }
+
+    private void advance(GameState from, GameState to) {
+        state.compareAndSet(from.ordinal(), to.ordinal());
+    }
+
+    public GameState getState() {
+        return GameState.values()[state.get()];
+    }
+
+    public boolean isGameOver() {
+        return getState().isOver();
+    }
+
+    public boolean getResult() {
+        return getState() == GameState.WON;
+    }
+
+    public int getOpenedTilesCount() {
+        return openedTiles.intValue();
+    }
+
+    public int getOpenedSafeTilesCount() {
+        return openedSafeTiles.intValue();
+    }
+
+    public int getFlaggedTilesCount() {
+        return flaggedTilesCount.intValue();
+    }
+
+    public int getCorrectFlagsCount() {
+        return correctFlags.intValue();
+    }
+}
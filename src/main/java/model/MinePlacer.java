@@ -0,0 +1,98 @@
+package model;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Расстановка мин алгоритмом Флойда: ровно одна выборка на мину, без повторных попыток.
+ * При плотности выше половины расставляются "дыры" среди сплошного минного поля.
+ * Несколько исключённых клеток (первый ход и его соседи) убираются из выборки
+ * перестановкой индексов, так что распределение на остальных клетках остаётся равномерным.
+ */
+final class MinePlacer {
+    private static final int[] NONE = new int[0];
+
+    private MinePlacer() {
+    }
+
+    static void place(byte[] cells, int mines, RandomGenerator random, int[] mineCells) {
+        place(cells, mines, random, mineCells, NONE);
+    }
+
+    // Ожидает, что в cells ещё нет мин. Индексы мин записываются в mineCells (длиной не меньше mines).
+    // Клетки из excluded (без повторов) остаются без мин
+    static void place(byte[] cells, int mines, RandomGenerator random, int[] mineCells, int[] excluded) {
+        int allowed = cells.length - excluded.length;
+        if (mines > allowed) {
+            throw new IllegalArgumentException("Мин больше, чем свободных клеток");
+        }
+
+        // Выборка идёт по индексам [0, allowed); исключённые индексы из этого диапазона
+        // подменяются свободными клетками из хвоста [allowed, cells.length)
+        int[] from = new int[excluded.length];
+        int[] to = new int[excluded.length];
+        int swaps = 0;
+        int tail = allowed;
+        for (int cell : excluded) {
+            if (cell < allowed) {
+                while (contains(excluded, tail)) {
+                    tail++;
+                }
+                from[swaps] = cell;
+                to[swaps++] = tail++;
+            }
+        }
+        IndexMap map = new IndexMap(from, to, swaps);
+
+        if (mines * 2 <= allowed) {
+            sample(cells, allowed, mines, random, map, mineCells);
+            return;
+        }
+
+        sample(cells, allowed, allowed - mines, random, map, null);
+        // Отмеченные выборкой клетки остаются пустыми, остальные становятся минами
+        int placed = 0;
+        for (int i = 0; i < cells.length; i++) {
+            if (excluded.length > 0 && contains(excluded, i)) {
+                continue;
+            }
+            cells[i] ^= Cell.MINE;
+            if (Cell.hasMine(cells[i])) {
+                mineCells[placed++] = i;
+            }
+        }
+    }
+
+    private static void sample(byte[] cells, int range, int count, RandomGenerator random, IndexMap map, int[] chosen) {
+        int placed = 0;
+        for (int j = range - count; j < range; j++) {
+            int index = map.cell(random.nextInt(j + 1));
+            if (Cell.hasMine(cells[index])) {
+                index = map.cell(j);
+            }
+            cells[index] |= Cell.MINE;
+            if (chosen != null) {
+                chosen[placed++] = index;
+            }
+        }
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record IndexMap(int[] from, int[] to, int size) {
+        int cell(int index) {
+            for (int i = 0; i < size; i++) {
+                if (from[i] == index) {
+                    return to[i];
+                }
+            }
+            return index;
+        }
+    }
+}
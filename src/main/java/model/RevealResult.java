@@ -0,0 +1,33 @@
+package model;
+
+/**
+ * Результат одного открытия: индексы всех клеток, открытых каскадом, в порядке открытия,
+ * и флаги исхода.
+ */
+public final class RevealResult {
+    private final int[] openedCells;
+    private final boolean hitMine;
+    private final boolean won;
+
+    RevealResult(int[] openedCells, boolean hitMine, boolean won) {
+        this.openedCells = openedCells;
+        this.hitMine = hitMine;
+        this.won = won;
+    }
+
+    public int[] getOpenedCells() {
+        return openedCells;
+    }
+
+    public int size() {
+        return openedCells.length;
+    }
+
+    public boolean hitMine() {
+        return hitMine;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+}
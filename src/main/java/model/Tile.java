@@ -1,47 +1,52 @@
 package model;
 
+/**
+ * Легковесное представление одной клетки поля. Само состояние хранится
+ * в упакованном массиве доски (см. {@link Cell}), поэтому изменения через
+ * представление сразу видны в {@link Board}.
+ */
 public class Tile {
-    private boolean isOpened;
-    private boolean isFlagged;
-    private boolean hasMine;
-    private int neighborMineCount;
+    private final byte[] cells;
+    private final int index;
 
     public Tile() {
-        isOpened = false;
-        isFlagged = false;
-        hasMine = false;
-        neighborMineCount = 0;
+        this(new byte[1], 0);
+    }
+
+    Tile(byte[] cells, int index) {
+        this.cells = cells;
+        this.index = index;
     }
 
     public boolean isOpened() {
-        return isOpened;
+        return Cell.isOpened(cells[index]);
     }
 
     public void setOpened(boolean opened) {
-        isOpened = opened;
+        cells[index] = Cell.with(cells[index], Cell.OPENED, opened);
     }
 
     public boolean isFlagged() {
-        return isFlagged;
+        return Cell.isFlagged(cells[index]);
     }
 
     public void setFlagged(boolean flagged) {
-        isFlagged = flagged;
+        cells[index] = Cell.with(cells[index], Cell.FLAGGED, flagged);
     }
 
     public boolean hasMine() {
-        return hasMine;
+        return Cell.hasMine(cells[index]);
     }
 
     public void setHasMine(boolean hasMine) {
-        this.hasMine = hasMine;
+        cells[index] = Cell.with(cells[index], Cell.MINE, hasMine);
     }
 
     public int getNeighborMineCount() {
-        return neighborMineCount;
+        return Cell.neighborMineCount(cells[index]);
     }
 
     public void setNeighborMineCount(int count) {
-        neighborMineCount = count;
+        cells[index] = Cell.withNeighborMineCount(cells[index], count);
     }
-}
\ No newline at end of file
+}
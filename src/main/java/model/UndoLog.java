@@ -0,0 +1,88 @@
+package model;
+
+import java.util.ArrayDeque;
+
+/**
+ * История действий доски для отмены и повтора. Каждое действие хранится одним массивом:
+ * бит клетки, который оно переключило, счётчики доски до и после действия, затем индексы
+ * изменённых клеток. Отмена и повтор переключают тот же бит обратно, поэтому память на шаг
+ * пропорциональна числу изменённых клеток, а не размеру поля. Массивы не меняются после
+ * записи и могут разделяться между копиями доски.
+ */
+final class UndoLog {
+    static final int DEFAULT_LIMIT = 1000;
+
+    static final int BIT = 0;
+    static final int COUNTERS = 5; // состояние, открыто, открыто безопасных, флагов, верных флагов
+    static final int BEFORE = 1;
+    static final int AFTER = BEFORE + COUNTERS;
+    static final int CELLS = AFTER + COUNTERS;
+
+    private final ArrayDeque<int[]> undo;
+    private final ArrayDeque<int[]> redo;
+    private int limit;
+
+    UndoLog(int limit) {
+        this.undo = new ArrayDeque<>();
+        this.redo = new ArrayDeque<>();
+        this.limit = limit;
+    }
+
+    UndoLog(UndoLog other) {
+        this.undo = new ArrayDeque<>(other.undo);
+        this.redo = new ArrayDeque<>(other.redo);
+        this.limit = other.limit;
+    }
+
+    // Новое действие делает повтор отменённых невозможным
+    void push(int[] entry) {
+        redo.clear();
+        if (limit == 0) {
+            return;
+        }
+        undo.push(entry);
+        if (undo.size() > limit) {
+            undo.removeLast();
+        }
+    }
+
+    int[] popUndo() {
+        int[] entry = undo.poll();
+        if (entry != null) {
+            redo.push(entry);
+        }
+        return entry;
+    }
+
+    int[] popRedo() {
+        int[] entry = redo.poll();
+        if (entry != null) {
+            undo.push(entry);
+        }
+        return entry;
+    }
+
+    boolean canUndo() {
+        return !undo.isEmpty();
+    }
+
+    boolean canRedo() {
+        return !redo.isEmpty();
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    void setLimit(int limit) {
+        this.limit = limit;
+        while (undo.size() > limit) {
+            undo.removeLast();
+        }
+    }
+
+    void clear() {
+        undo.clear();
+        redo.clear();
+    }
+}
@@ -0,0 +1,39 @@
+package server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Исполнитель "поток на соединение". На Java 21+ это виртуальные потоки, которые дёшево
+ * держать тысячами на блокирующем вводе-выводе; проект собирается под Java 17, поэтому
+ * метод ищется через отражение, а без него используется пул обычных потоков-демонов.
+ * На Java 19-20 метод есть, но без {@code --enable-preview} бросает исключение, поэтому
+ * о виртуальных потоках судим по тому, создался ли исполнитель, а не по наличию метода.
+ */
+final class ConnectionThreads {
+    private static volatile boolean virtual;
+
+    private ConnectionThreads() {
+    }
+
+    static ExecutorService perTaskExecutor(String name) {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            virtual = true;
+            return executor;
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            virtual = false;
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // Виртуальные ли потоки у исполнителя, созданного последним
+    static boolean isVirtual() {
+        return virtual;
+    }
+}
@@ -0,0 +1,354 @@
+package server;
+
+import model.Board;
+import model.GameState;
+import model.RevealResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Сервер партий без интерфейса на локальном TCP-порту, протокол описан в {@link Protocol}.
+ * Каждое соединение обслуживается своим потоком с блокирующим вводом-выводом, одно
+ * соединение может вести любое число сессий. Сессии хранятся в общей таблице и
+ * удаляются, если к ним не обращались дольше заданного времени. Число сессий и сумма клеток
+ * всех досок ограничены; новая игра сверх пределов получает {@link Protocol#LIMIT_EXCEEDED}.
+ * <p>
+ * Запуск: {@code java -cp target/classes server.GameServer [порт] [простой сессии, с]}
+ */
+public class GameServer implements AutoCloseable {
+    private static final int MAX_BOARD_CELLS = 4096 * 4096;
+    public static final int DEFAULT_MAX_SESSIONS = 100_000;
+    public static final long DEFAULT_MAX_TOTAL_CELLS = 1L << 27;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final ScheduledExecutorService evictor;
+    private final ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextSessionId = new AtomicLong(1);
+    // Учитываются при каждом добавлении и удалении в sessions, а не через sessions.size()
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    private final AtomicLong totalCells = new AtomicLong();
+    private final int maxSessions;
+    private final long maxTotalCells;
+    private final long idleTimeoutNanos;
+
+    private static final class Session {
+        final Board board;
+        // ReentrantLock, а не synchronized: виртуальный поток в synchronized не отпускает носитель
+        final ReentrantLock lock = new ReentrantLock();
+        volatile long lastAccess = System.nanoTime();
+
+        Session(Board board) {
+            this.board = board;
+        }
+    }
+
+    public GameServer(int port, long idleTimeoutMillis) throws IOException {
+        this(port, idleTimeoutMillis, DEFAULT_MAX_SESSIONS, DEFAULT_MAX_TOTAL_CELLS);
+    }
+
+    public GameServer(int port, long idleTimeoutMillis, int maxSessions, long maxTotalCells) throws IOException {
+        this.maxSessions = maxSessions;
+        this.maxTotalCells = maxTotalCells;
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        connections = ConnectionThreads.perTaskExecutor("game-connection");
+        evictor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "game-session-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleTimeoutMillis / 2);
+        evictor.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+
+        Thread acceptor = new Thread(this::acceptLoop, "game-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getSessionCount() {
+        return sessionCount.get();
+    }
+
+    public long getTotalCells() {
+        return totalCells.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        evictor.shutdownNow();
+        connections.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Ошибка приёма соединения: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        sessions.forEach((id, session) -> {
+            // remove(id, session): сессию, уже закрытую или заменённую, второй раз не учитываем
+            if (now - session.lastAccess > idleTimeoutNanos && sessions.remove(id, session)) {
+                removed(session);
+            }
+        });
+    }
+
+    private void removed(Session session) {
+        sessionCount.decrementAndGet();
+        totalCells.addAndGet(-session.board.getCellCount());
+    }
+
+    private boolean reserveSession() {
+        if (sessionCount.incrementAndGet() > maxSessions) {
+            sessionCount.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    // Занимает клетки под новую доску, если сумма остаётся в пределе
+    private boolean reserveCells(long cells) {
+        long current;
+        do {
+            current = totalCells.get();
+            if (current + cells > maxTotalCells) {
+                return false;
+            }
+        } while (!totalCells.compareAndSet(current, current + cells));
+        return true;
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            byte[] request = new byte[Protocol.MAX_REQUEST_BYTES];
+            ByteBuffer response = ByteBuffer.allocate(4096);
+            while (true) {
+                int length = in.readInt();
+                if (length < 0 || length > request.length) {
+                    return;
+                }
+                in.readFully(request, 0, length);
+
+                response = handle(ByteBuffer.wrap(request, 0, length), response);
+                out.writeInt(response.position());
+                out.write(response.array(), 0, response.position());
+                out.flush();
+            }
+        } catch (EOFException | SocketException e) {
+            // клиент закрыл соединение
+        } catch (IOException e) {
+            System.err.println("Ошибка соединения: " + e.getMessage());
+        }
+    }
+
+    // Разбирает запрос и пишет ответ в буфер с начала; при нехватке места возвращает буфер побольше
+    ByteBuffer handle(ByteBuffer request, ByteBuffer response) {
+        response.clear();
+        byte code;
+        long sessionId;
+        try {
+            code = request.get();
+            sessionId = request.getLong();
+        } catch (BufferUnderflowException e) {
+            return error(response, Protocol.BAD_REQUEST, 0);
+        }
+
+        if (code == Protocol.NEW_GAME) {
+            return newGame(request, response, sessionId);
+        }
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return error(response, Protocol.UNKNOWN_SESSION, sessionId);
+        }
+        if (code == Protocol.CLOSE) {
+            if (sessions.remove(sessionId, session)) {
+                removed(session);
+            }
+            return error(response, Protocol.OK, sessionId);
+        }
+
+        session.lastAccess = System.nanoTime();
+        session.lock.lock();
+        try {
+            Board board = session.board;
+            int row = 0;
+            int column = 0;
+            if (code == Protocol.OPEN || code == Protocol.FLAG || code == Protocol.UNFLAG) {
+                if (request.remaining() < 8) {
+                    return error(response, Protocol.BAD_REQUEST, sessionId);
+                }
+                row = request.getInt();
+                column = request.getInt();
+                if (!board.isValidPosition(row, column)) {
+                    return error(response, Protocol.BAD_REQUEST, sessionId);
+                }
+            }
+
+            switch (code) {
+                case Protocol.OPEN -> {
+                    RevealResult result = board.reveal(row, column);
+                    return changedCells(response, sessionId, board, result.getOpenedCells(), result.size());
+                }
+                case Protocol.FLAG, Protocol.UNFLAG -> {
+                    int flagged = board.getFlaggedTilesCount();
+                    if (code == Protocol.FLAG) {
+                        board.flagTile(row, column);
+                    } else {
+                        board.unflagTile(row, column);
+                    }
+                    int changed = flagged == board.getFlaggedTilesCount() ? 0 : 1;
+                    return changedCells(response, sessionId, board, new int[]{board.getCellIndex(row, column)}, changed);
+                }
+                case Protocol.STATE -> {
+                    return changedCells(response, sessionId, board, null, 0);
+                }
+                default -> {
+                    return error(response, Protocol.BAD_REQUEST, sessionId);
+                }
+            }
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    private ByteBuffer newGame(ByteBuffer request, ByteBuffer response, long sessionId) {
+        if (request.remaining() < 20) {
+            return error(response, Protocol.BAD_REQUEST, sessionId);
+        }
+        int rows = request.getInt();
+        int columns = request.getInt();
+        int mines = request.getInt();
+        long seed = request.getLong();
+        if (rows <= 0 || columns <= 0 || (long) rows * columns > MAX_BOARD_CELLS || mines < 0 || mines > rows * columns) {
+            return error(response, Protocol.BAD_REQUEST, sessionId);
+        }
+
+        Session session = sessionId == 0 ? null : sessions.get(sessionId);
+        if (session != null && session.board.getHeight() == rows && session.board.getWidth() == columns
+                && session.board.getMines() == mines) {
+            // Та же сессия и те же размеры: доска переиспользуется
+            session.lock.lock();
+            try {
+                session.lastAccess = System.nanoTime();
+                session.board.resetBoard(seed);
+                return changedCells(response, sessionId, session.board, null, 0);
+            } finally {
+                session.lock.unlock();
+            }
+        }
+
+        // Замена доски в существующей сессии не добавляет сессию, но клетки занимает заново
+        boolean replacing = session != null;
+        long cells = (long) rows * columns;
+        if (!replacing && !reserveSession()) {
+            return error(response, Protocol.LIMIT_EXCEEDED, sessionId);
+        }
+        if (!reserveCells(cells)) {
+            if (!replacing) {
+                sessionCount.decrementAndGet();
+            }
+            return error(response, Protocol.LIMIT_EXCEEDED, sessionId);
+        }
+
+        Session fresh = new Session(new Board(rows, columns, mines, seed));
+        fresh.board.setUndoLimit(0);
+        if (replacing) {
+            if (sessions.replace(sessionId, session, fresh)) {
+                totalCells.addAndGet(-session.board.getCellCount());
+                return changedCells(response, sessionId, fresh.board, null, 0);
+            }
+            // Заменяемую сессию успели закрыть или удалить по простою: это новая сессия
+            if (!reserveSession()) {
+                totalCells.addAndGet(-cells);
+                return error(response, Protocol.LIMIT_EXCEEDED, sessionId);
+            }
+        }
+        long id = nextSessionId.getAndIncrement();
+        sessions.put(id, fresh);
+        return changedCells(response, id, fresh.board, null, 0);
+    }
+
+    private static ByteBuffer error(ByteBuffer response, byte status, long sessionId) {
+        return response.put(status).putLong(sessionId).put((byte) 0).putInt(0).putInt(0).putInt(0);
+    }
+
+    private static ByteBuffer changedCells(ByteBuffer response, long sessionId, Board board, int[] cells, int count) {
+        int needed = Protocol.RESPONSE_HEADER_BYTES + count * Protocol.CELL_BYTES;
+        if (response.capacity() < needed) {
+            response = ByteBuffer.allocate(Math.max(needed, response.capacity() * 2));
+        }
+        response.put(Protocol.OK)
+                .putLong(sessionId)
+                .put(stateCode(board.getState()))
+                .putInt(board.getOpenedTilesCount())
+                .putInt(board.getFlaggedTilesCount())
+                .putInt(count);
+        for (int i = 0; i < count; i++) {
+            int cell = cells[i];
+            response.putInt(cell).put(visibleCell(board, cell));
+        }
+        return response;
+    }
+
+    private static byte stateCode(GameState state) {
+        return switch (state) {
+            case READY -> Protocol.STATE_READY;
+            case PLAYING -> Protocol.STATE_PLAYING;
+            case WON -> Protocol.STATE_WON;
+            case LOST -> Protocol.STATE_LOST;
+        };
+    }
+
+    private static byte visibleCell(Board board, int cell) {
+        if (board.isOpened(cell)) {
+            return board.hasMine(cell) ? Protocol.CELL_MINE : (byte) board.getNeighborMineCount(cell);
+        }
+        return board.isFlagged(cell) ? Protocol.CELL_FLAG : Protocol.CELL_CLOSED;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        long idleSeconds = args.length > 1 ? Long.parseLong(args[1]) : 300;
+        GameServer server = new GameServer(port, TimeUnit.SECONDS.toMillis(idleSeconds));
+        System.out.printf("Сервер слушает 127.0.0.1:%d, %s%n", server.getPort(),
+                ConnectionThreads.isVirtual() ? "виртуальные потоки" : "пул потоков");
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,209 @@
+package server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный клиент для {@link GameServer}. Сессии делятся между соединениями, каждое
+ * соединение по кругу делает ход в каждой своей сессии: открывает случайную клетку,
+ * изредка ставит или снимает флаг, после конца партии начинает новую в той же сессии.
+ * В конце печатает число ходов в секунду и задержки p50/p99/max по всем запросам.
+ * <p>
+ * Запуск: {@code java -cp target/classes server.LoadGenerator --sessions 10000 --connections 200}.
+ * Без {@code --port} поднимает сервер в этом же процессе.
+ */
+public class LoadGenerator {
+
+    public record Config(String host, int port, int sessions, int connections, int rows, int columns, int mines,
+                         long durationMillis, long seed) {
+    }
+
+    public record Result(long moves, long elapsedNanos, long p50Nanos, long p99Nanos, long maxNanos) {
+        public double movesPerSecond() {
+            return moves * 1e9 / elapsedNanos;
+        }
+    }
+
+    public static Result run(Config config) throws Exception {
+        ExecutorService executor = ConnectionThreads.perTaskExecutor("load-connection");
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.durationMillis());
+            long start = System.nanoTime();
+            for (int c = 0; c < config.connections(); c++) {
+                int sessions = config.sessions() / config.connections() + (c < config.sessions() % config.connections() ? 1 : 0);
+                long seed = config.seed() + c;
+                futures.add(executor.submit(() -> drive(config, sessions, seed, deadline)));
+            }
+
+            long[][] parts = new long[futures.size()][];
+            int total = 0;
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = futures.get(i).get();
+                total += parts[i].length;
+            }
+            long elapsed = System.nanoTime() - start;
+
+            long[] latencies = new long[total];
+            int offset = 0;
+            for (long[] part : parts) {
+                System.arraycopy(part, 0, latencies, offset, part.length);
+                offset += part.length;
+            }
+            Arrays.sort(latencies);
+            if (total == 0) {
+                return new Result(0, elapsed, 0, 0, 0);
+            }
+            return new Result(total, elapsed, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                    latencies[total - 1]);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+
+    // Одно соединение со своими сессиями; возвращает задержки ходов в наносекундах
+    private static long[] drive(Config config, int sessionCount, long seed, long deadline) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] latencies = new long[1024];
+        int recorded = 0;
+
+        try (Socket socket = new Socket(config.host(), config.port())) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            long[] sessions = new long[sessionCount];
+            for (int i = 0; i < sessionCount; i++) {
+                sessions[i] = newGame(in, out, config, 0, random.nextLong());
+            }
+
+            while (sessionCount > 0 && System.nanoTime() < deadline) {
+                for (int i = 0; i < sessionCount; i++) {
+                    int row = random.nextInt(config.rows());
+                    int column = random.nextInt(config.columns());
+                    int roll = random.nextInt(10);
+                    byte code = roll == 0 ? Protocol.FLAG : roll == 1 ? Protocol.UNFLAG : Protocol.OPEN;
+
+                    long begin = System.nanoTime();
+                    out.writeInt(1 + 8 + 8);
+                    out.writeByte(code);
+                    out.writeLong(sessions[i]);
+                    out.writeInt(row);
+                    out.writeInt(column);
+                    out.flush();
+                    byte state = readResponse(in);
+                    if (recorded == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, recorded * 2);
+                    }
+                    latencies[recorded++] = System.nanoTime() - begin;
+
+                    if (state == Protocol.STATE_WON || state == Protocol.STATE_LOST) {
+                        newGame(in, out, config, sessions[i], random.nextLong());
+                    }
+                }
+            }
+
+            for (long session : sessions) {
+                out.writeInt(1 + 8);
+                out.writeByte(Protocol.CLOSE);
+                out.writeLong(session);
+                out.flush();
+                readResponse(in);
+            }
+        }
+        return Arrays.copyOf(latencies, recorded);
+    }
+
+    private static long newGame(DataInputStream in, DataOutputStream out, Config config, long session, long seed)
+            throws IOException {
+        out.writeInt(1 + 8 + 4 + 4 + 4 + 8);
+        out.writeByte(Protocol.NEW_GAME);
+        out.writeLong(session);
+        out.writeInt(config.rows());
+        out.writeInt(config.columns());
+        out.writeInt(config.mines());
+        out.writeLong(seed);
+        out.flush();
+
+        int length = in.readInt();
+        byte status = in.readByte();
+        long id = in.readLong();
+        in.skipNBytes(length - 9);
+        if (status != Protocol.OK) {
+            throw new IOException("Сервер отклонил новую игру, статус " + status);
+        }
+        return id;
+    }
+
+    // Читает ответ на ход целиком и возвращает состояние игры
+    private static byte readResponse(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        byte status = in.readByte();
+        in.skipNBytes(8);
+        byte state = in.readByte();
+        in.skipNBytes(length - 10);
+        if (status != Protocol.OK) {
+            throw new IOException("Ошибка сервера, статус " + status);
+        }
+        return state;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = -1;
+        int sessions = 10_000;
+        int connections = 200;
+        int rows = 16;
+        int columns = 30;
+        int mines = 99;
+        long seconds = 10;
+        long seed = 1;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(value);
+                case "--sessions" -> sessions = Integer.parseInt(value);
+                case "--connections" -> connections = Integer.parseInt(value);
+                case "--rows" -> rows = Integer.parseInt(value);
+                case "--columns" -> columns = Integer.parseInt(value);
+                case "--mines" -> mines = Integer.parseInt(value);
+                case "--seconds" -> seconds = Long.parseLong(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Неизвестный параметр: " + args[i]);
+            }
+        }
+
+        GameServer server = port < 0 ? new GameServer(0, TimeUnit.MINUTES.toMillis(5)) : null;
+        try {
+            Config config = new Config(InetAddress.getLoopbackAddress().getHostAddress(),
+                    server != null ? server.getPort() : port, sessions, Math.min(connections, sessions),
+                    rows, columns, mines, TimeUnit.SECONDS.toMillis(seconds), seed);
+            Result result = run(config);
+            System.out.printf("Сессий: %d, соединений: %d, потоки: %s%n", config.sessions(), config.connections(),
+                    ConnectionThreads.isVirtual() ? "виртуальные" : "обычные");
+            System.out.printf("Ходов: %d, %.0f ходов/с%n", result.moves(), result.movesPerSecond());
+            System.out.printf("Задержка: p50 %.1f мкс, p99 %.1f мкс, max %.1f мкс%n",
+                    result.p50Nanos() / 1e3, result.p99Nanos() / 1e3, result.maxNanos() / 1e3);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package server;
+
+/**
+ * Двоичный протокол сервера игр. Каждое сообщение - кадр: длина (int, без учёта самих
+ * четырёх байт), затем содержимое. Все числа в порядке big-endian.
+ * <pre>
+ * запрос:  код (1), сессия (8), аргументы
+ *   NEW_GAME  строки (4), столбцы (4), мины (4), зерно (8); сессия 0 - новая, иначе перезапуск
+ *   OPEN, FLAG, UNFLAG  строка (4), столбец (4)
+ *   STATE, CLOSE        без аргументов
+ * ответ:   статус (1), сессия (8), состояние игры (1), открыто (4), флагов (4),
+ *          число изменённых клеток (4), затем для каждой: индекс (4), вид клетки (1)
+ * </pre>
+ * Состояние игры: {@link #STATE_READY}, {@link #STATE_PLAYING}, {@link #STATE_WON}, {@link #STATE_LOST}.
+ * Вид клетки: 0-6 - открыта, число мин вокруг; {@link #CELL_MINE} - открыта мина;
+ * {@link #CELL_FLAG} - флаг; {@link #CELL_CLOSED} - закрыта.
+ */
+public final class Protocol {
+    public static final byte NEW_GAME = 1;
+    public static final byte OPEN = 2;
+    public static final byte FLAG = 3;
+    public static final byte UNFLAG = 4;
+    public static final byte STATE = 5;
+    public static final byte CLOSE = 6;
+
+    public static final byte OK = 0;
+    public static final byte UNKNOWN_SESSION = 1;
+    public static final byte BAD_REQUEST = 2;
+    // Превышен предел числа сессий или суммарного числа клеток на сервере
+    public static final byte LIMIT_EXCEEDED = 3;
+
+    public static final byte STATE_READY = 0;
+    public static final byte STATE_PLAYING = 1;
+    public static final byte STATE_WON = 2;
+    public static final byte STATE_LOST = 3;
+
+    public static final byte CELL_MINE = 9;
+    public static final byte CELL_FLAG = 10;
+    public static final byte CELL_CLOSED = 11;
+
+    // Самый длинный запрос (NEW_GAME) занимает 29 байт; кадр длиннее закрывает соединение
+    public static final int MAX_REQUEST_BYTES = 64;
+    static final int RESPONSE_HEADER_BYTES = 1 + 8 + 1 + 4 + 4 + 4;
+    static final int CELL_BYTES = 5;
+
+    private Protocol() {
+    }
+}
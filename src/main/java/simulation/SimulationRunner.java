@@ -0,0 +1,181 @@
+package simulation;
+
+import model.Board;
+import model.GameState;
+import model.RevealResult;
+import solver.DeterministicSolver;
+import solver.ProbabilitySolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Пакетная симуляция игр без JavaFX. Игры раздаются потокам с шагом по номеру игры,
+ * каждый поток переиспользует свою доску через {@link Board#resetBoard(long)}, а зерно
+ * каждой игры выводится из общего зерна и номера игры, так что результат не зависит
+ * от числа потоков и от нагрузки машины: перебор фронта в SOLVER ограничен числом шагов,
+ * а не временем, так что запуск с тем же зерном повторяет результат.
+ * <p>
+ * Запуск: {@code java -cp target/classes simulation.SimulationRunner --rows 20 --columns 35
+ * --mines 120 --games 100000 --strategy solver --seed 1 [--threads N]}
+ */
+public class SimulationRunner {
+    public enum Strategy {
+        SOLVER,        // логический вывод, при остановке - клетка с наименьшей вероятностью мины
+        DETERMINISTIC, // только логический вывод, остановка считается проигрышем
+        RANDOM         // случайная закрытая клетка на каждом ходу
+    }
+
+    public record Config(int rows, int columns, int mines, long games, int threads, long seed, Strategy strategy) {
+    }
+
+    public record Result(long games, long wins, long reveals, long elapsedNanos) {
+        public double winRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        public double averageReveals() {
+            return games == 0 ? 0 : (double) reveals / games;
+        }
+
+        public double gamesPerSecond() {
+            return games / (elapsedNanos / 1e9);
+        }
+    }
+
+    private final Config config;
+    private final LongAdder games = new LongAdder();
+    private final LongAdder wins = new LongAdder();
+    private final LongAdder reveals = new LongAdder();
+
+    public SimulationRunner(Config config) {
+        this.config = config;
+    }
+
+    public Result run() {
+        ForkJoinPool pool = new ForkJoinPool(config.threads());
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int worker = 0; worker < config.threads(); worker++) {
+                int first = worker;
+                // вероятностный решатель делит тот же пул, поэтому вложенные задачи не плодят потоков
+                workers.add(pool.submit(() -> play(first, pool)));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Симуляция прервана", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка в потоке симуляции", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return new Result(games.sum(), wins.sum(), reveals.sum(), System.nanoTime() - start);
+    }
+
+    private void play(int first, ForkJoinPool pool) {
+        Board board = new Board(config.rows(), config.columns(), config.mines(), gameSeed(first));
+        board.setUndoLimit(0); // отмена в симуляции не нужна
+        DeterministicSolver solver = new DeterministicSolver(board);
+        ProbabilitySolver probabilities = new ProbabilitySolver(pool, 32, 1 << 22);
+
+        for (long game = first; game < config.games(); game += config.threads()) {
+            board.resetBoard(gameSeed(game));
+            solver.reset();
+
+            long gameReveals = switch (config.strategy()) {
+                case SOLVER -> playSolver(board, solver, probabilities);
+                case DETERMINISTIC -> playDeterministic(board, solver);
+                case RANDOM -> playRandom(board, new SplittableRandom(gameSeed(game)));
+            };
+
+            games.increment();
+            reveals.add(gameReveals);
+            if (board.getState() == GameState.WON) {
+                wins.increment();
+            }
+        }
+    }
+
+    private long gameSeed(long game) {
+        return new SplittableRandom(config.seed() ^ (game * 0x9E3779B97F4A7C15L)).nextLong();
+    }
+
+    private static long playDeterministic(Board board, DeterministicSolver solver) {
+        solver.solve(board.getHeight() / 2, board.getWidth() / 2);
+        return solver.getRevealsMade();
+    }
+
+    private static long playSolver(Board board, DeterministicSolver solver, ProbabilitySolver probabilities) {
+        GameState state = solver.solve(board.getHeight() / 2, board.getWidth() / 2);
+        long guesses = 0;
+        while (state == GameState.PLAYING) {
+            int guess = probabilities.bestGuess(board);
+            RevealResult result = board.reveal(guess / board.getWidth(), guess % board.getWidth());
+            guesses++;
+            solver.cellsChanged(result.getOpenedCells());
+            state = solver.run();
+        }
+        return solver.getRevealsMade() + guesses;
+    }
+
+    private static long playRandom(Board board, SplittableRandom random) {
+        long moves = 0;
+        int cellCount = board.getCellCount();
+        while (!board.isGameOver()) {
+            int cell = random.nextInt(cellCount);
+            if (!board.isOpened(cell)) {
+                board.reveal(cell / board.getWidth(), cell % board.getWidth());
+                moves++;
+            }
+        }
+        return moves;
+    }
+
+    public static void main(String[] args) {
+        Config config = parse(args);
+        Result result = new SimulationRunner(config).run();
+
+        System.out.printf("Поле %dx%d, мин %d, стратегия %s, потоков %d, зерно %d%n",
+                config.rows(), config.columns(), config.mines(), config.strategy(), config.threads(), config.seed());
+        System.out.printf("Игр: %d, побед: %d (%.2f%%)%n", result.games(), result.wins(), result.winRate() * 100);
+        System.out.printf("Открытий за игру: %.2f%n", result.averageReveals());
+        System.out.printf("Игр в секунду: %.0f%n", result.gamesPerSecond());
+    }
+
+    static Config parse(String[] args) {
+        int rows = 16;
+        int columns = 30;
+        int mines = 99;
+        long gameCount = 10_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        Strategy strategy = Strategy.SOLVER;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--rows" -> rows = Integer.parseInt(value);
+                case "--columns" -> columns = Integer.parseInt(value);
+                case "--mines" -> mines = Integer.parseInt(value);
+                case "--games" -> gameCount = Long.parseLong(value);
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--strategy" -> strategy = Strategy.valueOf(value.toUpperCase());
+                default -> throw new IllegalArgumentException("Неизвестный параметр: " + args[i]);
+            }
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Число потоков должно быть положительным");
+        }
+        return new Config(rows, columns, mines, gameCount, threads, seed, strategy);
+    }
+}
@@ -0,0 +1,235 @@
+package solver;
+
+import model.Adjacency;
+import model.Board;
+import model.GameState;
+import model.RevealResult;
+
+import java.util.BitSet;
+
+/**
+ * Решатель, использующий только видимое состояние поля: открытые клетки с их числами и флаги.
+ * Применяет правило одной клетки (все мины вокруг найдены / все закрытые соседи - мины)
+ * и правило подмножеств для пар соседних ограничений. Работает инкрементально: после
+ * каждого хода пересматриваются только клетки рядом с изменившимися, а не всё поле.
+ */
+public class DeterministicSolver {
+    private final Board board;
+    private final Adjacency adjacency;
+    private final int[] queue;
+    private final BitSet queued;
+    private int head;
+    private int size;
+
+    private final int[] unknownA = new int[6];
+    private final int[] unknownB = new int[6];
+    private final int[] difference = new int[6];
+    private long movesMade;
+    private long revealsMade;
+
+    public DeterministicSolver(Board board) {
+        this.board = board;
+        this.adjacency = board.getAdjacency();
+        this.queue = new int[board.getCellCount()];
+        this.queued = new BitSet(board.getCellCount());
+    }
+
+    /**
+     * Открывает стартовую клетку и играет, пока остаются выводимые ходы.
+     * Возвращает состояние игры: {@link GameState#PLAYING} означает, что решатель застрял.
+     */
+    public GameState solve(int startRow, int startColumn) {
+        if (!board.isOpened(board.getCellIndex(startRow, startColumn))) {
+            open(board.getCellIndex(startRow, startColumn));
+        }
+        return run();
+    }
+
+    // Продолжает с текущего состояния поля, пересматривая только накопленные изменения
+    public GameState run() {
+        while (size > 0 && !board.isGameOver()) {
+            int cell = poll();
+            examine(cell);
+        }
+        return board.getState();
+    }
+
+    /**
+     * Сообщает решателю о клетках, изменённых не им самим (например, ходом игрока).
+     */
+    public void cellsChanged(int[] cells) {
+        for (int cell : cells) {
+            touch(cell);
+        }
+    }
+
+    // Ставит в очередь все открытые клетки, на ограничения которых мог повлиять этот ход
+    public void touch(int cell) {
+        offer(cell);
+        for (int k = adjacency.start(cell), end = adjacency.end(cell); k < end; k++) {
+            offer(adjacency.at(k));
+        }
+    }
+
+    // Сбрасывает очередь, например после resetBoard той же доски
+    public void reset() {
+        queued.clear();
+        head = 0;
+        size = 0;
+        movesMade = 0;
+        revealsMade = 0;
+    }
+
+    public long getMovesMade() {
+        return movesMade;
+    }
+
+    public long getRevealsMade() {
+        return revealsMade;
+    }
+
+    private void offer(int cell) {
+        if (!board.isOpened(cell) || board.getNeighborMineCount(cell) == 0 || queued.get(cell)) {
+            return;
+        }
+        queued.set(cell);
+        queue[(head + size) % queue.length] = cell;
+        size++;
+    }
+
+    private int poll() {
+        int cell = queue[head];
+        head = (head + 1) % queue.length;
+        size--;
+        queued.clear(cell);
+        return cell;
+    }
+
+    private void examine(int cell) {
+        int unknownCount = unknownNeighbors(cell, unknownA);
+        if (unknownCount == 0) {
+            return;
+        }
+        int need = remainingMines(cell);
+
+        if (need == 0) {
+            openAll(unknownA, unknownCount);
+            return;
+        }
+        if (need == unknownCount) {
+            flagAll(unknownA, unknownCount);
+            return;
+        }
+
+        // Правило подмножеств: соседние ограничения находятся среди соседей закрытых клеток
+        for (int i = 0; i < unknownCount; i++) {
+            int unknown = unknownA[i];
+            for (int k = adjacency.start(unknown), end = adjacency.end(unknown); k < end; k++) {
+                int other = adjacency.at(k);
+                if (other == cell || !board.isOpened(other) || board.getNeighborMineCount(other) == 0) {
+                    continue;
+                }
+                int otherCount = unknownNeighbors(other, unknownB);
+                int otherNeed = remainingMines(other);
+                if (applySubset(unknownA, unknownCount, need, unknownB, otherCount, otherNeed)
+                        || applySubset(unknownB, otherCount, otherNeed, unknownA, unknownCount, need)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Если закрытые клетки small входят в large, в разнице large \ small ровно largeNeed - smallNeed мин
+    private boolean applySubset(int[] small, int smallCount, int smallNeed, int[] large, int largeCount, int largeNeed) {
+        if (smallCount == 0 || smallCount >= largeCount || !containsAll(large, largeCount, small, smallCount)) {
+            return false;
+        }
+        int differenceCount = subtract(large, largeCount, small, smallCount, difference);
+        int differenceMines = largeNeed - smallNeed;
+
+        if (differenceMines == 0) {
+            openAll(difference, differenceCount);
+            return true;
+        }
+        if (differenceMines == differenceCount) {
+            flagAll(difference, differenceCount);
+            return true;
+        }
+        return false;
+    }
+
+    private int unknownNeighbors(int cell, int[] out) {
+        int count = 0;
+        for (int k = adjacency.start(cell), end = adjacency.end(cell); k < end; k++) {
+            int neighbor = adjacency.at(k);
+            if (!board.isOpened(neighbor) && !board.isFlagged(neighbor)) {
+                out[count++] = neighbor;
+            }
+        }
+        return count;
+    }
+
+    private int remainingMines(int cell) {
+        int flags = 0;
+        for (int k = adjacency.start(cell), end = adjacency.end(cell); k < end; k++) {
+            if (board.isFlagged(adjacency.at(k))) {
+                flags++;
+            }
+        }
+        return board.getNeighborMineCount(cell) - flags;
+    }
+
+    private static boolean contains(int[] set, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (set[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsAll(int[] set, int setCount, int[] subset, int subsetCount) {
+        for (int i = 0; i < subsetCount; i++) {
+            if (!contains(set, setCount, subset[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int subtract(int[] set, int setCount, int[] removed, int removedCount, int[] out) {
+        int count = 0;
+        for (int i = 0; i < setCount; i++) {
+            if (!contains(removed, removedCount, set[i])) {
+                out[count++] = set[i];
+            }
+        }
+        return count;
+    }
+
+    private void openAll(int[] cells, int count) {
+        for (int i = 0; i < count && !board.isGameOver(); i++) {
+            open(cells[i]);
+        }
+    }
+
+    private void open(int cell) {
+        int width = board.getWidth();
+        RevealResult result = board.reveal(cell / width, cell % width);
+        movesMade++;
+        revealsMade++;
+        for (int opened : result.getOpenedCells()) {
+            touch(opened);
+        }
+    }
+
+    private void flagAll(int[] cells, int count) {
+        int width = board.getWidth();
+        for (int i = 0; i < count; i++) {
+            int cell = cells[i];
+            board.flagTile(cell / width, cell % width);
+            movesMade++;
+            touch(cell);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package solver;
+
+import metrics.GenerationEvent;
+import model.Adjacency;
+import model.Board;
+import model.GameState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Генератор полей, которые проходятся одной логикой от безопасного первого хода.
+ * Несколько потоков перебирают кандидатов со своими зёрнами и проверяют каждого
+ * {@link DeterministicSolver}; как только один кандидат прошёл, остальные потоки
+ * прерываются. Если решатель застрял, одна из мин у границы открытой области
+ * переносится вглубь закрытой, и проверка повторяется, вместо того чтобы
+ * генерировать поле заново.
+ * <p>
+ * С одним потоком результат однозначно задаётся зерном; с несколькими побеждает
+ * тот кандидат, который нашёлся первым.
+ */
+public class NoGuessGenerator {
+    private static final long DEFAULT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    public record Result(Board board, long attempts, long repairs, long elapsedNanos) {
+        public double attemptsPerSecond() {
+            return attempts / (elapsedNanos / 1e9);
+        }
+    }
+
+    private final int threads;
+    private final int maxRepairs;
+    private final long timeoutNanos;
+
+    public NoGuessGenerator() {
+        this(Runtime.getRuntime().availableProcessors(), 20, DEFAULT_TIMEOUT_NANOS);
+    }
+
+    // maxRepairs = 0 отключает перенос мин: каждый неудачный кандидат отбрасывается
+    public NoGuessGenerator(int threads, int maxRepairs, long timeoutNanos) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Число потоков должно быть положительным");
+        }
+        this.threads = threads;
+        this.maxRepairs = maxRepairs;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /**
+     * Возвращает поле, на котором первый ход в (startRow, startColumn) открывает пустую
+     * клетку и дальше всё решается без угадывания.
+     *
+     * @throws IllegalStateException если за отведённое время поле не нашлось
+     */
+    public Result generate(int rows, int columns, int mines, int startRow, int startColumn, long seed) {
+        Adjacency adjacency = Adjacency.of(rows, columns);
+        int start = startRow * columns + startColumn;
+        boolean[] reserved = new boolean[rows * columns];
+        reserved[start] = true;
+        for (int k = adjacency.start(start), end = adjacency.end(start); k < end; k++) {
+            reserved[adjacency.at(k)] = true;
+        }
+        int free = 0;
+        for (boolean cell : reserved) {
+            if (!cell) {
+                free++;
+            }
+        }
+        if (mines < 0 || mines > free) {
+            throw new IllegalArgumentException("Мин должно быть от 0 до " + free);
+        }
+
+        LongAdder attempts = new LongAdder();
+        LongAdder repairs = new LongAdder();
+        List<Callable<Board>> workers = new ArrayList<>();
+        for (int worker = 0; worker < threads; worker++) {
+            SplittableRandom random = new SplittableRandom(seed ^ (worker * 0x9E3779B97F4A7C15L));
+            workers.add(() -> search(rows, columns, mines, start, reserved, random, attempts, repairs));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        GenerationEvent event = new GenerationEvent();
+        event.begin();
+        long begin = System.nanoTime();
+        try {
+            // invokeAny возвращает первый успешный результат и прерывает остальных
+            Board board = pool.invokeAny(workers, timeoutNanos, TimeUnit.NANOSECONDS);
+            if (event.shouldCommit()) {
+                event.rows = rows;
+                event.columns = columns;
+                event.mines = mines;
+                event.attempts = attempts.sum();
+                event.commit();
+            }
+            return new Result(board, attempts.sum(), repairs.sum(), System.nanoTime() - begin);
+        } catch (TimeoutException | ExecutionException e) {
+            throw new IllegalStateException("Не удалось подобрать поле без угадывания за "
+                    + attempts.sum() + " попыток", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Генерация прервана", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Board search(int rows, int columns, int mines, int start, boolean[] reserved, SplittableRandom random,
+                         LongAdder attempts, LongAdder repairs) throws InterruptedException {
+        int[] candidates = new int[reserved.length];
+        int candidateCount = 0;
+        for (int cell = 0; cell < reserved.length; cell++) {
+            if (!reserved[cell]) {
+                candidates[candidateCount++] = cell;
+            }
+        }
+        int[] mineCells = new int[mines];
+
+        while (true) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            // Частичное перемешивание: первые mines кандидатов становятся минами
+            for (int i = 0; i < mines; i++) {
+                int j = i + random.nextInt(candidateCount - i);
+                int swap = candidates[i];
+                candidates[i] = candidates[j];
+                candidates[j] = swap;
+                mineCells[i] = candidates[i];
+            }
+
+            for (int repair = 0; repair <= maxRepairs; repair++) {
+                attempts.increment();
+                long boardSeed = random.nextLong();
+                Board trial = Board.fromMines(rows, columns, mineCells, boardSeed);
+                trial.setUndoLimit(0);
+                GameState state = new DeterministicSolver(trial).solve(start / columns, start % columns);
+                if (state == GameState.WON) {
+                    // Решатель прошёл копию до конца, игроку отдаётся нетронутая доска
+                    return Board.fromMines(rows, columns, mineCells, boardSeed);
+                }
+                if (state == GameState.LOST || repair == maxRepairs || !relocateFrontierMine(trial, mineCells, reserved, random)) {
+                    break;
+                }
+                repairs.increment();
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+    }
+
+    // Переносит случайную мину с границы открытой области в закрытую клетку вдали от неё
+    private static boolean relocateFrontierMine(Board stalled, int[] mineCells, boolean[] reserved, SplittableRandom random) {
+        Adjacency adjacency = stalled.getAdjacency();
+        int frontierMines = 0;
+        int chosen = -1;
+        int interiorCells = 0;
+        int target = -1;
+
+        for (int cell = 0; cell < stalled.getCellCount(); cell++) {
+            if (stalled.isOpened(cell) || reserved[cell]) {
+                continue;
+            }
+            boolean frontier = false;
+            for (int k = adjacency.start(cell), end = adjacency.end(cell); k < end && !frontier; k++) {
+                frontier = stalled.isOpened(adjacency.at(k));
+            }
+            // Выбор случайного элемента за один проход
+            if (frontier && stalled.hasMine(cell) && !stalled.isFlagged(cell)) {
+                if (random.nextInt(++frontierMines) == 0) {
+                    chosen = cell;
+                }
+            } else if (!frontier && !stalled.hasMine(cell)) {
+                if (random.nextInt(++interiorCells) == 0) {
+                    target = cell;
+                }
+            }
+        }
+        if (chosen < 0 || target < 0) {
+            return false;
+        }
+        for (int i = 0; i < mineCells.length; i++) {
+            if (mineCells[i] == chosen) {
+                mineCells[i] = target;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int columns = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int mines = args.length > 2 ? Integer.parseInt(args[2]) : 99;
+        int boards = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        NoGuessGenerator generator = new NoGuessGenerator();
+        long totalAttempts = 0;
+        long totalNanos = 0;
+        long worstNanos = 0;
+        for (int i = 0; i < boards; i++) {
+            Result result = generator.generate(rows, columns, mines, rows / 2, columns / 2, i);
+            totalAttempts += result.attempts();
+            totalNanos += result.elapsedNanos();
+            worstNanos = Math.max(worstNanos, result.elapsedNanos());
+        }
+        System.out.printf("Поле %dx%d, мин %d, потоков %d%n", rows, columns, mines, generator.threads);
+        System.out.printf("Попыток в секунду: %.0f%n", totalAttempts / (totalNanos / 1e9));
+        System.out.printf("Время до поля: в среднем %.1f мс, худшее %.1f мс%n",
+                totalNanos / 1e6 / boards, worstNanos / 1e6);
+    }
+}
@@ -0,0 +1,578 @@
+package solver;
+
+import model.Adjacency;
+import model.Board;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Оценка вероятности мины для каждой закрытой клетки по видимому состоянию поля.
+ * <p>
+ * Закрытые клетки, соседние с открытыми числами, делятся на независимые компоненты
+ * (связанные общими ограничениями). Каждая компонента перебирается отдельно в
+ * {@link ForkJoinPool}: для каждого числа мин k считается количество решений и сколько раз
+ * каждая клетка оказалась миной. Результаты компонент кэшируются по их ограничениям и
+ * затем сворачиваются вместе с биномиальным числом способов разместить оставшиеся мины
+ * в клетках вне фронта. Компоненты, не уложившиеся в бюджет по размеру или числу шагов
+ * перебора (а не по времени, чтобы результат не зависел от нагрузки машины),
+ * оцениваются взвешенной выборкой: случайными спусками с оценкой Кнута, которая даёт
+ * несмещённую оценку числа решений и частот мин.
+ */
+public class ProbabilitySolver {
+    private static final int DEFAULT_MAX_EXACT_VARIABLES = 64;
+    private static final long DEFAULT_MAX_STEPS = 1 << 20;
+    private static final int SAMPLED_PROBES = 2_000;
+    private static final int MAX_CACHED_COMPONENTS = 10_000;
+
+    private final ForkJoinPool pool;
+    private final int maxExactVariables;
+    private final long maxSteps;
+    private final ConcurrentHashMap<ComponentKey, ComponentResult> cache = new ConcurrentHashMap<>();
+
+    public ProbabilitySolver() {
+        this(ForkJoinPool.commonPool(), DEFAULT_MAX_EXACT_VARIABLES, DEFAULT_MAX_STEPS);
+    }
+
+    /**
+     * @param maxExactVariables компоненты крупнее перебираются только выборкой
+     * @param maxSteps          предел узлов точного перебора одной компоненты
+     */
+    public ProbabilitySolver(ForkJoinPool pool, int maxExactVariables, long maxSteps) {
+        this.pool = pool;
+        this.maxExactVariables = maxExactVariables;
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Возвращает вероятность мины по индексу клетки: 0 для открытых, 1 для помеченных флагом.
+     */
+    public double[] mineProbabilities(Board board) {
+        int cellCount = board.getCellCount();
+        double[] probabilities = new double[cellCount];
+        Adjacency adjacency = board.getAdjacency();
+
+        // Переменные - закрытые клетки фронта, ограничения - открытые клетки с закрытыми соседями
+        int[] variableOf = new int[cellCount];
+        Arrays.fill(variableOf, -1);
+        int[] parent = new int[cellCount];
+        List<int[]> constraints = new ArrayList<>();
+        int variables = 0;
+        int unknownCells = 0;
+        int remainingMines = board.getMines() - board.getFlaggedTilesCount();
+
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (board.isFlagged(cell)) {
+                probabilities[cell] = 1;
+            } else if (!board.isOpened(cell)) {
+                unknownCells++;
+            }
+        }
+
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (!board.isOpened(cell) || board.hasMine(cell) || board.getNeighborMineCount(cell) == 0) {
+                continue;
+            }
+            int[] unknown = new int[6];
+            int count = 0;
+            int flags = 0;
+            for (int k = adjacency.start(cell), end = adjacency.end(cell); k < end; k++) {
+                int neighbor = adjacency.at(k);
+                if (board.isFlagged(neighbor)) {
+                    flags++;
+                } else if (!board.isOpened(neighbor)) {
+                    unknown[count++] = neighbor;
+                    if (variableOf[neighbor] < 0) {
+                        variableOf[neighbor] = variables;
+                        parent[variables] = variables;
+                        variables++;
+                    }
+                }
+            }
+            if (count == 0) {
+                continue;
+            }
+            int[] constraint = new int[count + 1];
+            constraint[0] = board.getNeighborMineCount(cell) - flags;
+            for (int i = 0; i < count; i++) {
+                constraint[i + 1] = unknown[i];
+                union(parent, variableOf[unknown[0]], variableOf[unknown[i]]);
+            }
+            constraints.add(constraint);
+        }
+
+        List<Component> components = buildComponents(constraints, variableOf, parent, variables);
+        List<ComponentTask> tasks = new ArrayList<>();
+        for (Component component : components) {
+            tasks.add(new ComponentTask(component, remainingMines));
+        }
+        List<ComponentResult> results = pool.invoke(new ForkJoinAll(tasks));
+
+        combine(components, results, probabilities, unknownCells - variables, remainingMines, board, variableOf);
+        return probabilities;
+    }
+
+    // Клетка с наименьшей вероятностью мины среди закрытых, -1 если таких нет
+    public int bestGuess(Board board) {
+        double[] probabilities = mineProbabilities(board);
+        int best = -1;
+        for (int cell = 0; cell < probabilities.length; cell++) {
+            if (!board.isOpened(cell) && !board.isFlagged(cell)
+                    && (best < 0 || probabilities[cell] < probabilities[best])) {
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        parent[find(parent, a)] = find(parent, b);
+    }
+
+    private static List<Component> buildComponents(List<int[]> constraints, int[] variableOf, int[] parent, int variables) {
+        int[] componentOfRoot = new int[variables];
+        Arrays.fill(componentOfRoot, -1);
+        List<List<int[]>> grouped = new ArrayList<>();
+        for (int[] constraint : constraints) {
+            int root = find(parent, variableOf[constraint[1]]);
+            if (componentOfRoot[root] < 0) {
+                componentOfRoot[root] = grouped.size();
+                grouped.add(new ArrayList<>());
+            }
+            grouped.get(componentOfRoot[root]).add(constraint);
+        }
+
+        List<Component> components = new ArrayList<>();
+        for (List<int[]> group : grouped) {
+            components.add(new Component(group));
+        }
+        return components;
+    }
+
+    /**
+     * Сворачивает распределения числа мин по компонентам с числом способов разложить
+     * остаток по клеткам вне фронта. Свёртки и веса считаются в логарифмах: произведение
+     * чисел решений многих компонент не помещается в double.
+     */
+    private static void combine(List<Component> components, List<ComponentResult> results, double[] probabilities,
+                                int outsideCells, int remainingMines, Board board, int[] variableOf) {
+        int count = components.size();
+        double[] logFactorials = logFactorials(outsideCells + 1);
+
+        double[][] logSolutions = new double[count][];
+        for (int i = 0; i < count; i++) {
+            double[] solutions = results.get(i).solutions;
+            logSolutions[i] = new double[solutions.length];
+            for (int k = 0; k < solutions.length; k++) {
+                logSolutions[i][k] = Math.log(solutions[k]); // для 0 - минус бесконечность
+            }
+        }
+
+        // Свёртки префиксов и суффиксов: "все, кроме i" - это префикс до i со суффиксом после i
+        double[][] prefix = new double[count + 1][];
+        double[][] suffix = new double[count + 1][];
+        prefix[0] = new double[]{0};
+        suffix[count] = new double[]{0};
+        for (int i = 0; i < count; i++) {
+            prefix[i + 1] = logConvolve(prefix[i], logSolutions[i]);
+            suffix[count - 1 - i] = logConvolve(logSolutions[count - 1 - i], suffix[count - i]);
+        }
+        double[][] excluding = new double[count][];
+        for (int i = 0; i < count; i++) {
+            excluding[i] = logConvolve(prefix[i], suffix[i + 1]);
+        }
+        // total[t] - логарифм числа совместных решений всех компонент с t минами на фронте
+        double[] total = prefix[count];
+
+        double maxLog = Double.NEGATIVE_INFINITY;
+        for (int t = 0; t < total.length; t++) {
+            int outside = remainingMines - t;
+            if (total[t] > Double.NEGATIVE_INFINITY && outside >= 0 && outside <= outsideCells) {
+                maxLog = Math.max(maxLog, total[t] + logBinomial(logFactorials, outsideCells, outside));
+            }
+        }
+        if (maxLog == Double.NEGATIVE_INFINITY) {
+            return; // видимое состояние противоречиво (например, неверные флаги)
+        }
+
+        double normalizer = 0;
+        double outsideMines = 0;
+        for (int t = 0; t < total.length; t++) {
+            double weight = weight(logFactorials, total[t], outsideCells, remainingMines - t, maxLog);
+            normalizer += weight;
+            outsideMines += weight * (remainingMines - t);
+        }
+
+        for (int i = 0; i < count; i++) {
+            Component component = components.get(i);
+            ComponentResult result = results.get(i);
+            double[] rest = excluding[i];
+            for (int k = 0; k < result.solutions.length; k++) {
+                if (result.solutions[k] == 0) {
+                    continue;
+                }
+                double otherWeight = 0;
+                for (int j = 0; j < rest.length; j++) {
+                    otherWeight += weight(logFactorials, rest[j], outsideCells, remainingMines - k - j, maxLog);
+                }
+                for (int v = 0; v < component.cells.length; v++) {
+                    probabilities[component.cells[v]] += result.cellMines[k][v] * otherWeight / normalizer;
+                }
+            }
+            // Сумма по k может превысить 1 на ошибку округления
+            for (int cell : component.cells) {
+                probabilities[cell] = Math.min(1, probabilities[cell]);
+            }
+        }
+
+        if (outsideCells > 0) {
+            double outsideProbability = outsideMines / normalizer / outsideCells;
+            for (int cell = 0; cell < probabilities.length; cell++) {
+                if (!board.isOpened(cell) && !board.isFlagged(cell) && variableOf[cell] < 0) {
+                    probabilities[cell] = outsideProbability;
+                }
+            }
+        }
+    }
+
+    private static double weight(double[] logFactorials, double logSolutions, int outsideCells, int outsideMines,
+                                 double maxLog) {
+        if (logSolutions == Double.NEGATIVE_INFINITY || outsideMines < 0 || outsideMines > outsideCells) {
+            return 0;
+        }
+        return Math.exp(logSolutions + logBinomial(logFactorials, outsideCells, outsideMines) - maxLog);
+    }
+
+    // Свёртка распределений, заданных логарифмами: каждая сумма считается от своего максимума
+    private static double[] logConvolve(double[] a, double[] b) {
+        double[] max = new double[a.length + b.length - 1];
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b.length; j++) {
+                max[i + j] = Math.max(max[i + j], a[i] + b[j]);
+            }
+        }
+        double[] sum = new double[max.length];
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == Double.NEGATIVE_INFINITY) {
+                continue;
+            }
+            for (int j = 0; j < b.length; j++) {
+                if (b[j] != Double.NEGATIVE_INFINITY) {
+                    sum[i + j] += Math.exp(a[i] + b[j] - max[i + j]);
+                }
+            }
+        }
+        for (int t = 0; t < max.length; t++) {
+            max[t] = max[t] == Double.NEGATIVE_INFINITY ? max[t] : max[t] + Math.log(sum[t]);
+        }
+        return max;
+    }
+
+    private static double[] logFactorials(int n) {
+        double[] result = new double[n + 1];
+        for (int i = 1; i <= n; i++) {
+            result[i] = result[i - 1] + Math.log(i);
+        }
+        return result;
+    }
+
+    private static double logBinomial(double[] logFactorials, int n, int k) {
+        return logFactorials[n] - logFactorials[k] - logFactorials[n - k];
+    }
+
+    /**
+     * Компонента фронта: клетки-переменные и ограничения вида "среди этих клеток ровно need мин".
+     */
+    private static final class Component {
+        final int[] cells;
+        final int[] needs;
+        final int[][] constraintVariables;
+        final int[][] variableConstraints;
+        final ComponentKey key;
+
+        Component(List<int[]> constraints) {
+            int[] seen = constraints.stream().flatMapToInt(c -> Arrays.stream(c, 1, c.length)).distinct().sorted().toArray();
+            cells = seen;
+            needs = new int[constraints.size()];
+            constraintVariables = new int[constraints.size()][];
+            int[] keyData = new int[cells.length + constraints.size() * 7 + 1];
+            int keyLength = 0;
+            keyData[keyLength++] = cells.length;
+            for (int cell : cells) {
+                keyData[keyLength++] = cell;
+            }
+
+            int[] membership = new int[cells.length];
+            for (int c = 0; c < constraints.size(); c++) {
+                int[] constraint = constraints.get(c);
+                needs[c] = constraint[0];
+                constraintVariables[c] = new int[constraint.length - 1];
+                keyData[keyLength++] = constraint[0];
+                for (int i = 1; i < constraint.length; i++) {
+                    int variable = Arrays.binarySearch(cells, constraint[i]);
+                    constraintVariables[c][i - 1] = variable;
+                    membership[variable]++;
+                    keyData[keyLength++] = variable;
+                }
+            }
+            key = new ComponentKey(Arrays.copyOf(keyData, keyLength));
+
+            variableConstraints = new int[cells.length][];
+            for (int v = 0; v < cells.length; v++) {
+                variableConstraints[v] = new int[membership[v]];
+            }
+            int[] filled = new int[cells.length];
+            for (int c = 0; c < constraintVariables.length; c++) {
+                for (int variable : constraintVariables[c]) {
+                    variableConstraints[variable][filled[variable]++] = c;
+                }
+            }
+        }
+    }
+
+    private record ComponentKey(int[] data) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ComponentKey key && Arrays.equals(data, key.data);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(data);
+        }
+    }
+
+    /**
+     * solutions[k] - число решений компоненты ровно с k минами,
+     * cellMines[k][v] - в скольких из них клетка v оказалась миной.
+     */
+    private static final class ComponentResult {
+        final double[] solutions;
+        final double[][] cellMines;
+
+        ComponentResult(double[] solutions, double[][] cellMines) {
+            this.solutions = solutions;
+            this.cellMines = cellMines;
+        }
+    }
+
+    @SuppressWarnings("serial") // задачи не сериализуются
+    private static final class ForkJoinAll extends RecursiveTask<List<ComponentResult>> {
+        private final List<ComponentTask> tasks;
+
+        ForkJoinAll(List<ComponentTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected List<ComponentResult> compute() {
+            invokeAll(tasks);
+            List<ComponentResult> results = new ArrayList<>(tasks.size());
+            for (ComponentTask task : tasks) {
+                results.add(task.join());
+            }
+            return results;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private final class ComponentTask extends RecursiveTask<ComponentResult> {
+        private final Component component;
+        private final int remainingMines;
+
+        ComponentTask(Component component, int remainingMines) {
+            this.component = component;
+            this.remainingMines = remainingMines;
+        }
+
+        @Override
+        protected ComponentResult compute() {
+            ComponentResult cached = cache.get(component.key);
+            // результат, посчитанный с большим запасом мин, подходит и для меньшего
+            if (cached != null && cached.solutions.length - 1 >= Math.min(remainingMines, component.cells.length)) {
+                return cached;
+            }
+
+            ComponentResult result = null;
+            if (component.cells.length <= maxExactVariables) {
+                result = new Enumeration(component, remainingMines, maxSteps).run();
+            }
+            if (result == null) {
+                return new Enumeration(component, remainingMines, 0).sample(SAMPLED_PROBES);
+            }
+
+            if (cache.size() > MAX_CACHED_COMPONENTS) {
+                cache.clear();
+            }
+            cache.put(component.key, result);
+            return result;
+        }
+    }
+
+    /**
+     * Перебор с возвратом по переменным компоненты с отсечением по каждому ограничению.
+     */
+    private static final class Enumeration {
+        private static final double LOG_2 = Math.log(2);
+
+        private final Component component;
+        private final int maxMines;
+        private final long maxSteps;
+        private final int[] constraintMines;
+        private final int[] constraintOpen;
+        private final int[] values;
+        private final double[] solutions;
+        private final double[][] cellMines;
+        private long steps;
+        private boolean aborted;
+
+        Enumeration(Component component, int maxMines, long maxSteps) {
+            this.component = component;
+            this.maxMines = Math.min(maxMines, component.cells.length);
+            this.maxSteps = maxSteps;
+            this.constraintMines = new int[component.needs.length];
+            this.constraintOpen = new int[component.needs.length];
+            this.values = new int[component.cells.length];
+            for (int c = 0; c < component.needs.length; c++) {
+                constraintOpen[c] = component.constraintVariables[c].length;
+            }
+            this.solutions = new double[this.maxMines + 1];
+            this.cellMines = new double[this.maxMines + 1][component.cells.length];
+        }
+
+        // Точный перебор; null, если не уложился в число шагов
+        ComponentResult run() {
+            search(0, 0);
+            return aborted ? null : new ComponentResult(solutions, cellMines);
+        }
+
+        /**
+         * Оценка Кнута: каждый спуск идёт от первой переменной к последней, выбирая случайное
+         * из допустимых значений, и получает вес - произведение числа вариантов на каждом шаге.
+         * Среднее взвешенных листьев - несмещённая оценка сумм по всем решениям, в отличие от
+         * первого найденного решения, которое смещено к "узким" ветвям. Веса хранятся
+         * относительно наибольшего встреченного: общий множитель сокращается при свёртке.
+         */
+        ComponentResult sample(int probes) {
+            SplittableRandom random = new SplittableRandom(component.key.hashCode());
+            double maxLogWeight = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < probes; i++) {
+                double logWeight = 0;
+                int mines = 0;
+                int assigned = 0;
+                boolean complete = true;
+                for (int variable = 0; variable < values.length; variable++) {
+                    boolean zero = assign(variable, 0);
+                    unassign(variable, 0);
+                    boolean one = false;
+                    if (mines < maxMines) {
+                        one = assign(variable, 1);
+                        unassign(variable, 1);
+                    }
+                    if (!zero && !one) {
+                        complete = false;
+                        break;
+                    }
+                    int value = zero && one ? random.nextInt(2) : one ? 1 : 0;
+                    if (zero && one) {
+                        logWeight += LOG_2;
+                    }
+                    assign(variable, value);
+                    mines += value;
+                    assigned++;
+                }
+
+                if (complete) {
+                    if (logWeight > maxLogWeight) {
+                        rescale(Math.exp(maxLogWeight - logWeight));
+                        maxLogWeight = logWeight;
+                    }
+                    record(mines, Math.exp(logWeight - maxLogWeight));
+                }
+                for (int variable = assigned - 1; variable >= 0; variable--) {
+                    unassign(variable, values[variable]);
+                }
+            }
+            return new ComponentResult(solutions, cellMines);
+        }
+
+        private void rescale(double factor) {
+            for (int k = 0; k < solutions.length; k++) {
+                if (solutions[k] == 0) {
+                    continue;
+                }
+                solutions[k] *= factor;
+                double[] row = cellMines[k];
+                for (int v = 0; v < row.length; v++) {
+                    row[v] *= factor;
+                }
+            }
+        }
+
+        private void search(int variable, int mines) {
+            if (++steps > maxSteps) {
+                aborted = true;
+            }
+            if (aborted) {
+                return;
+            }
+            if (variable == component.cells.length) {
+                record(mines, 1);
+                return;
+            }
+
+            for (int value = 0; value <= 1; value++) {
+                if (value == 1 && mines == maxMines) {
+                    continue;
+                }
+                if (assign(variable, value)) {
+                    search(variable + 1, mines + value);
+                }
+                unassign(variable, value);
+            }
+        }
+
+        private boolean assign(int variable, int value) {
+            values[variable] = value;
+            boolean consistent = true;
+            for (int c : component.variableConstraints[variable]) {
+                constraintMines[c] += value;
+                constraintOpen[c]--;
+                int need = component.needs[c];
+                if (constraintMines[c] > need || constraintMines[c] + constraintOpen[c] < need) {
+                    consistent = false;
+                }
+            }
+            return consistent;
+        }
+
+        private void unassign(int variable, int value) {
+            for (int c : component.variableConstraints[variable]) {
+                constraintMines[c] -= value;
+                constraintOpen[c]++;
+            }
+        }
+
+        private void record(int mines, double weight) {
+            solutions[mines] += weight;
+            double[] row = cellMines[mines];
+            for (int v = 0; v < values.length; v++) {
+                row[v] += weight * values[v];
+            }
+        }
+    }
+}
@@ -1,6 +1,43 @@
+import app.HexGeometry;
+import journal.MoveJournal;
+import journal.MoveType;
+import journal.Replay;
+import jdk.jfr.Recording;
+import metrics.Histogram;
+import metrics.JfrSummary;
 import model.Board;
+import model.BoardSnapshot;
+import model.ChunkedBoard;
+import model.ConcurrentBoard;
+import model.GameState;
+import model.RevealResult;
 import model.Tile;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import server.GameServer;
+import server.Protocol;
+import simulation.SimulationRunner;
+import solver.DeterministicSolver;
+import solver.NoGuessGenerator;
+import solver.ProbabilitySolver;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -28,6 +65,23 @@ public class MinesweeperTest {
         assertEquals(5, tile.getNeighborMineCount());
     }
 
+    @Test
+    public void testTileViewSharesBoardState() {
+        Board board = new Board(8, 8, 10);
+
+        board.getTile(3, 4).setFlagged(true);
+        assertTrue(board.getTile(3, 4).isFlagged());
+
+        Tile tile = board.getTile(5, 6);
+        board.openTile(5, 6);
+        assertTrue(tile.isOpened());
+        assertFalse(tile.isFlagged());
+
+        tile.setNeighborMineCount(6);
+        assertEquals(6, board.getTile(5, 6).getNeighborMineCount());
+        assertTrue(board.getTile(5, 6).isOpened());
+    }
+
     @Test
     public void testBoardInitialization() {
         int rows = 16;
@@ -48,6 +102,77 @@ public class MinesweeperTest {
         }
     }
 
+    @Test
+    public void testSeededBoardIsReproducible() {
+        Board first = new Board(16, 30, 99, 42L);
+        Board second = new Board(16, 30, 99, 42L);
+        first.generate(3, 4);
+        second.generate(3, 4);
+
+        assertEquals(42L, first.getSeed());
+        assertSameMines(first, second);
+
+        first.resetBoard(7L);
+        second.resetBoard(7L);
+        first.reveal(10, 20);
+        second.reveal(10, 20);
+        assertSameMines(first, second);
+    }
+
+    @Test
+    public void testMineCountAcrossDensities() {
+        for (int mines : new int[]{0, 1, 50, 99, 100, 150, 399, 400}) {
+            Board board = new Board(20, 20, mines, mines);
+            board.generate(0, 0);
+            int placed = 0;
+            for (int row = 0; row < board.getHeight(); row++) {
+                for (int col = 0; col < board.getWidth(); col++) {
+                    if (board.getTile(row, col).hasMine()) {
+                        placed++;
+                    }
+                }
+            }
+            assertEquals(mines, placed);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new Board(8, 8, 65));
+    }
+
+    @Test
+    public void testFirstClickIsSafe() {
+        for (long seed = 0; seed < 200; seed++) {
+            Board board = new Board(8, 8, 10, seed);
+            assertFalse(board.isGenerated());
+            board.flagTile(0, 0);
+
+            RevealResult first = board.reveal(4, 4);
+            assertTrue(board.isGenerated());
+            assertFalse(first.hitMine());
+            assertEquals(0, board.getNeighborMineCount(board.getCellIndex(4, 4)));
+            assertTrue(first.size() > 1);
+            assertEquals(board.hasMine(0) ? 1 : 0, board.getCorrectFlagsCount());
+
+            // Сброс только очищает поле, новые мины появятся при следующем открытии
+            board.resetBoard(seed);
+            assertFalse(board.isGenerated());
+            assertEquals(0, board.getCorrectFlagsCount());
+        }
+
+        // Если места вокруг не хватает, без мины остаётся хотя бы сама клетка
+        Board crowded = new Board(8, 8, 60, 1);
+        assertFalse(crowded.reveal(4, 4).hitMine());
+        assertEquals(60, crowded.getMines());
+    }
+
+    private void assertSameMines(Board first, Board second) {
+        for (int row = 0; row < first.getHeight(); row++) {
+            for (int col = 0; col < first.getWidth(); col++) {
+                assertEquals(first.getTile(row, col).hasMine(), second.getTile(row, col).hasMine());
+                assertEquals(first.getTile(row, col).getNeighborMineCount(), second.getTile(row, col).getNeighborMineCount());
+            }
+        }
+    }
+
     @Test
     public void testFlaggingTile() {
         Board board = new Board(8, 8, 10);
@@ -71,6 +196,21 @@ public class MinesweeperTest {
         assertEquals(1, board.getOpenedTilesCount());
     }
 
+    @Test
+    public void testFinishedGameIgnoresFurtherOpening() {
+        Board board = Board.fromMines(6, 6, new int[]{0, 35}, 1);
+        board.reveal(0, 0);
+        assertEquals(GameState.LOST, board.getState());
+        int opened = board.getOpenedTilesCount();
+
+        assertEquals(0, board.reveal(3, 3).size());
+        board.openTile(5, 5);
+        assertEquals(opened, board.getOpenedTilesCount());
+        assertFalse(board.isOpened(board.getCellIndex(3, 3)));
+        assertFalse(board.isOpened(board.getCellIndex(5, 5)));
+        assertEquals(GameState.LOST, board.getState());
+    }
+
     @Test
     public void testAssignNeighborMineCounts() {
         Board board = new Board(16, 30, 99);
@@ -102,6 +242,867 @@ public class MinesweeperTest {
 
         return count;
     }
+    @Test
+    public void testNeighborsMatchOffsets() {
+        Board board = new Board(9, 11, 10);
+        int[] neighbors = new int[6];
+
+        for (int row = 0; row < board.getHeight(); row++) {
+            for (int col = 0; col < board.getWidth(); col++) {
+                int count = board.neighbors(board.getCellIndex(row, col), neighbors);
+                int expected = 0;
+
+                for (int[] offset : board.getNeighborOffsets(row)) {
+                    int newRow = row + offset[0];
+                    int newCol = col + offset[1];
+                    if (board.isValidPosition(newRow, newCol)) {
+                        assertEquals(board.getCellIndex(newRow, newCol), neighbors[expected]);
+                        expected++;
+                    }
+                }
+                assertEquals(expected, count);
+            }
+        }
+    }
+
+    @Test
+    public void testRevealOpensClosedRegion() {
+        Board board = new Board(30, 30, 40);
+
+        for (int row = 0; row < board.getHeight(); row++) {
+            for (int col = 0; col < board.getWidth(); col++) {
+                Tile tile = board.getTile(row, col);
+                if (!tile.hasMine() && tile.getNeighborMineCount() == 0) {
+                    RevealResult result = board.reveal(row, col);
+                    assertFalse(result.hitMine());
+                    assertEquals(board.getOpenedTilesCount(), result.size());
+                    assertRevealClosed(board);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void assertRevealClosed(Board board) {
+        int[] neighbors = new int[6];
+        int width = board.getWidth();
+
+        for (int row = 0; row < board.getHeight(); row++) {
+            for (int col = 0; col < width; col++) {
+                Tile tile = board.getTile(row, col);
+                if (tile.isOpened() && tile.getNeighborMineCount() == 0) {
+                    int count = board.neighbors(board.getCellIndex(row, col), neighbors);
+                    for (int i = 0; i < count; i++) {
+                        assertTrue(board.getTile(neighbors[i] / width, neighbors[i] % width).isOpened());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRevealLargeSparseBoard() {
+        Board board = new Board(1000, 1000, 0);
+
+        RevealResult result = board.reveal(500, 500);
+
+        assertEquals(1000 * 1000, result.size());
+        assertEquals(1000 * 1000, board.getOpenedTilesCount());
+        assertEquals(0, board.reveal(0, 0).size());
+    }
+
+    @Test
+    public void testChunkedBoardIsDeterministicAcrossEviction() {
+        ChunkedBoard board = new ChunkedBoard(11L, 0.15, 16);
+        ChunkedBoard reference = new ChunkedBoard(11L, 0.15, 1024);
+
+        long[] opened = board.reveal(0, 0);
+        assertTrue(opened.length > 0);
+        assertEquals(GameState.PLAYING, board.getState());
+
+        // уход далеко от начала вытесняет первые куски из памяти
+        for (int i = 0; i < 64; i++) {
+            board.hasMine(1000 + i * ChunkedBoard.CHUNK_SIZE, -1000);
+        }
+        assertTrue(board.getLiveChunkCount() <= 16);
+        assertTrue(board.getCompactedChunkCount() > 0);
+
+        for (long cell : opened) {
+            assertTrue(board.isOpened(ChunkedBoard.rowOf(cell), ChunkedBoard.columnOf(cell)));
+        }
+        for (int row = -70; row < 70; row += 3) {
+            for (int col = -70; col < 70; col += 5) {
+                assertEquals(reference.hasMine(row, col), board.hasMine(row, col));
+            }
+        }
+    }
+
+    @Test
+    public void testChunkedBoardKeepsEvictedStateWithinBudget() {
+        int size = ChunkedBoard.CHUNK_SIZE;
+        try (ChunkedBoard board = new ChunkedBoard(3L, 0.2, 16)) {
+            // Кусок далеко от начала решается целиком
+            int base = 10 * size;
+            for (int row = base; row < base + size; row++) {
+                for (int col = base; col < base + size; col++) {
+                    if (!board.hasMine(row, col)) {
+                        board.reveal(row, col);
+                    }
+                }
+            }
+
+            // По флагу в каждом из 400 кусков: сжатых в памяти не больше бюджета, остальные на диске
+            for (int i = 0; i < 400; i++) {
+                board.flagTile(-i * size, 5 * size);
+            }
+            assertTrue(board.getLiveChunkCount() <= 16);
+            assertTrue(board.getCompactedChunkCount() <= 16 * 4);
+            assertTrue(board.getSpilledChunkCount() > 0);
+            assertEquals(1, board.getResolvedChunkCount());
+
+            for (int i = 0; i < 400; i++) {
+                assertTrue(board.isFlagged(-i * size, 5 * size), "chunk " + i);
+            }
+            assertEquals(400, board.getFlaggedTilesCount());
+            for (int row = base; row < base + size; row++) {
+                for (int col = base; col < base + size; col++) {
+                    assertEquals(!board.hasMine(row, col), board.isOpened(row, col));
+                }
+            }
+            assertEquals(0, board.getResolvedChunkCount()); // кусок снова живой
+        }
+    }
+
+    @Test
+    public void testHexHitTestingMatchesCellCenters() {
+        int rows = 7;
+        int columns = 9;
+        double inner = HexGeometry.cellCenter(0, 1)[0] - HexGeometry.cellCenter(0, 0)[0]; // 2n
+        // Позиции на одну клетку за правой, левой и нижней границей тоже проверяются: там -1
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int cell = row * columns + column;
+                double[] center = HexGeometry.cellCenter(row, column);
+                assertEquals(cell, HexGeometry.cellAt(center[0], center[1], rows, columns));
+
+                int neighbors = 0;
+                for (int otherRow = row - 1; otherRow <= row + 1; otherRow++) {
+                    for (int otherColumn = column - 1; otherColumn <= column + 1; otherColumn++) {
+                        if (otherRow < 0 || otherRow == row && otherColumn == column) {
+                            continue;
+                        }
+                        double[] other = HexGeometry.cellCenter(otherRow, otherColumn);
+                        double dx = other[0] - center[0];
+                        double dy = other[1] - center[1];
+                        if (Math.abs(Math.hypot(dx, dy) - inner) > 1e-9) {
+                            continue; // не сосед
+                        }
+                        neighbors++;
+                        // Середина общей грани на расстоянии inner / 2 от обоих центров
+                        int expected = otherRow < rows && otherColumn >= 0 && otherColumn < columns
+                                ? otherRow * columns + otherColumn : -1;
+                        assertEquals(cell, HexGeometry.cellAt(center[0] + dx * 0.47, center[1] + dy * 0.47,
+                                rows, columns), "клетка " + cell + " у грани с " + otherRow + "," + otherColumn);
+                        assertEquals(expected, HexGeometry.cellAt(center[0] + dx * 0.53, center[1] + dy * 0.53,
+                                rows, columns), "клетка " + cell + " за гранью с " + otherRow + "," + otherColumn);
+                    }
+                }
+                assertEquals(row == 0 ? 4 : 6, neighbors);
+
+                // Верхняя вершина на расстоянии r от центра; над первой строкой поля нет
+                double r = inner / Math.sqrt(3);
+                assertEquals(cell, HexGeometry.cellAt(center[0], center[1] - r * 0.95, rows, columns));
+                if (row == 0) {
+                    assertEquals(-1, HexGeometry.cellAt(center[0], center[1] - r * 1.05, rows, columns));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testChunkedBoardResumesCutCascade() {
+        ChunkedBoard reference = new ChunkedBoard(7L, 0.13, 1024);
+        Set<Long> expected = new HashSet<>();
+        for (long cell : reference.reveal(0, 0)) {
+            expected.add(cell);
+        }
+        assertFalse(reference.hasPendingCascade());
+        assertTrue(expected.size() > 100);
+
+        // Тот же каскад по 50 клеток за вызов: остаток очереди продолжают следующие вызовы
+        ChunkedBoard board = new ChunkedBoard(7L, 0.13, 1024, 50);
+        Set<Long> opened = new HashSet<>();
+        int calls = 0;
+        do {
+            long[] part = board.reveal(0, 0);
+            assertTrue(part.length <= 50 + 6);
+            for (long cell : part) {
+                opened.add(cell);
+            }
+            calls++;
+        } while (board.hasPendingCascade());
+        assertTrue(calls > 1);
+        assertEquals(expected, opened);
+        assertEquals(reference.getOpenedTilesCount(), board.getOpenedTilesCount());
+    }
+
+    @Test
+    public void testChunkedBoardCountsAcrossChunkBorders() {
+        ChunkedBoard board = new ChunkedBoard(5L, 0.3, 64);
+        int edge = ChunkedBoard.CHUNK_SIZE;
+
+        for (int row = edge - 2; row <= edge + 1; row++) {
+            for (int col = -edge - 2; col <= edge + 1; col++) {
+                int expected = 0;
+                int[][] offsets = row % 2 == 0 ? new int[][]{{-1, -1}, {1, -1}, {-1, 0}, {0, -1}, {0, 1}, {1, 0}}
+                        : new int[][]{{1, 1}, {-1, 1}, {-1, 0}, {0, -1}, {0, 1}, {1, 0}};
+                for (int[] offset : offsets) {
+                    if (board.hasMine(row + offset[0], col + offset[1])) {
+                        expected++;
+                    }
+                }
+                assertEquals(expected, board.getNeighborMineCount(row, col));
+            }
+        }
+    }
+
+    @Test
+    public void testDeterministicSolverMakesOnlySafeMoves() {
+        int won = 0;
+        for (long seed = 0; seed < 50; seed++) {
+            Board board = new Board(16, 30, 99, seed);
+            int start = findZeroCell(board);
+            if (start < 0) {
+                continue;
+            }
+
+            GameState state = new DeterministicSolver(board).solve(start / board.getWidth(), start % board.getWidth());
+
+            assertNotEquals(GameState.LOST, state);
+            assertEquals(board.getFlaggedTilesCount(), board.getCorrectFlagsCount());
+            if (state == GameState.WON) {
+                won++;
+            }
+        }
+        assertTrue(won > 0);
+    }
+
+    @Test
+    public void testSnapshotRoundTrip(@TempDir Path directory) throws IOException {
+        Board board = new Board(40, 70, 500, 11);
+        int zero = findZeroCell(board);
+        board.reveal(zero / board.getWidth(), zero % board.getWidth());
+        board.flagTile(0, 0);
+        board.flagTile(39, 69);
+
+        Path file = directory.resolve("board.hxms");
+        BoardSnapshot.save(board, file);
+        assertEquals(BoardSnapshot.size(board), Files.size(file));
+        Board loaded = BoardSnapshot.load(file);
+
+        assertSameBoard(board, loaded);
+
+        // Восстановленная доска продолжает игру так же, как исходная
+        board.openAll();
+        loaded.openAll();
+        assertSameBoard(board, loaded);
+        // Мины ещё не расставлены: после загрузки первое открытие даёт то же поле
+        Board fresh = new Board(20, 20, 50, 9);
+        BoardSnapshot.save(fresh, file);
+        Board freshLoaded = BoardSnapshot.load(file);
+        assertFalse(freshLoaded.isGenerated());
+        fresh.reveal(5, 5);
+        freshLoaded.reveal(5, 5);
+        assertSameBoard(fresh, freshLoaded);
+    }
+
+    @Test
+    public void testSnapshotRejectsForeignData() {
+        assertThrows(IOException.class, () -> BoardSnapshot.read(ByteBuffer.allocate(100)));
+
+        Board board = new Board(8, 8, 10, 3);
+        ByteBuffer buffer = ByteBuffer.allocate((int) BoardSnapshot.size(board));
+        BoardSnapshot.write(board, buffer);
+        buffer.limit(buffer.limit() - 1).rewind();
+        assertThrows(IOException.class, () -> BoardSnapshot.read(buffer));
+
+        // Счётчики и состояние в заголовке должны совпадать с клетками
+        board.reveal(0, 0);
+        board.flagTile(7, 7);
+        ByteBuffer valid = ByteBuffer.allocate((int) BoardSnapshot.size(board));
+        BoardSnapshot.write(board, valid);
+        assertDoesNotThrow(() -> BoardSnapshot.read(valid.duplicate().flip()));
+        for (int offset : new int[]{28, 32, 36, 40}) {
+            ByteBuffer tampered = valid.duplicate().flip();
+            tampered.putInt(offset, tampered.getInt(offset) + 1);
+            assertThrows(IOException.class, () -> BoardSnapshot.read(tampered));
+        }
+        ByteBuffer wrongState = valid.duplicate().flip();
+        wrongState.put(6, (byte) (board.getState() == GameState.LOST ? GameState.WON : GameState.LOST).ordinal());
+        assertThrows(IOException.class, () -> BoardSnapshot.read(wrongState));
+        ByteBuffer oldVersion = valid.duplicate().flip();
+        oldVersion.putShort(4, (short) 1);
+        assertThrows(IOException.class, () -> BoardSnapshot.read(oldVersion));
+    }
+
+    @Test
+    public void testChordOpensNeighborsWhenFlagsMatch() {
+        Board board = new Board(8, 8, 10, 5);
+        board.generate(0, 0);
+        int numbered = -1;
+        for (int i = 0; i < board.getCellCount() && numbered < 0; i++) {
+            if (!board.hasMine(i) && board.getNeighborMineCount(i) > 0) {
+                numbered = i;
+            }
+        }
+        int row = numbered / board.getWidth();
+        int col = numbered % board.getWidth();
+        board.openTile(row, col);
+        assertEquals(0, board.chord(row, col).size());
+
+        int closedSafe = 0;
+        int[] neighbors = new int[6];
+        for (int i = 0, count = board.neighbors(numbered, neighbors); i < count; i++) {
+            int neighbor = neighbors[i];
+            if (board.hasMine(neighbor)) {
+                board.flagTile(neighbor / board.getWidth(), neighbor % board.getWidth());
+            } else {
+                closedSafe++;
+            }
+        }
+
+        RevealResult chord = board.chord(row, col);
+        assertFalse(chord.hitMine());
+        assertTrue(chord.size() >= closedSafe);
+        for (int i = 0, count = board.neighbors(numbered, neighbors); i < count; i++) {
+            assertTrue(board.isOpened(neighbors[i]) || board.isFlagged(neighbors[i]));
+        }
+    }
+
+    @Test
+    public void testJournalReplaysAndSeeks(@TempDir Path directory) throws IOException {
+        Board board = new Board(30, 30, 90, 21);
+        Path file = directory.resolve("game.hxmj");
+        List<Board> states = new ArrayList<>();
+        states.add(copy(board));
+
+        MoveType[] types = MoveType.values();
+        SplittableRandom random = new SplittableRandom(4);
+        try (MoveJournal journal = MoveJournal.create(file, board)) {
+            while (!board.isGameOver() && states.size() <= 200) {
+                MoveType type = types[random.nextInt(types.length)];
+                int row = random.nextInt(board.getHeight());
+                int col = random.nextInt(board.getWidth());
+                // Мины обходятся, чтобы партия длилась дольше
+                if (type == MoveType.OPEN && board.hasMine(board.getCellIndex(row, col))) {
+                    type = MoveType.FLAG;
+                }
+                journal.record(type, row, col);
+                switch (type) {
+                    case OPEN -> board.reveal(row, col);
+                    case CHORD -> board.chord(row, col);
+                    case FLAG -> board.flagTile(row, col);
+                    case UNFLAG -> board.unflagTile(row, col);
+                    case UNDO -> board.undo();
+                    case REDO -> board.redo();
+                }
+                states.add(copy(board));
+            }
+        }
+
+        Replay replay = new Replay(file, 16);
+        assertEquals(states.size() - 1, replay.getMoveCount());
+        assertSameBoard(states.get(states.size() - 1), replay.seek(replay.getMoveCount()));
+        for (int move : new int[]{0, 5, 170, 17, 16, 100, 99, replay.getMoveCount()}) {
+            assertSameBoard(states.get(move), replay.seek(move));
+        }
+
+        // Испорченные вид хода или координаты отвергаются при открытии, а не посреди воспроизведения
+        byte[] bytes = Files.readAllBytes(file);
+        int record = bytes.length - 12;
+        for (int[] damage : new int[][]{{0, 100}, {4, 0x7F}, {11, 30}}) {
+            byte[] damaged = bytes.clone();
+            damaged[record + damage[0]] = (byte) damage[1];
+            Path damagedFile = directory.resolve("damaged.hxmj");
+            Files.write(damagedFile, damaged);
+            assertThrows(IOException.class, () -> new Replay(damagedFile));
+        }
+    }
+
+    @Test
+    public void testJournalKeepsExplicitMineLayout(@TempDir Path directory) throws IOException {
+        // Расстановка, которую зерно 5 не даёт: все мины в первой строке
+        Board board = Board.fromMines(10, 10, new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, 5);
+        assertTrue(board.hasFixedLayout());
+        assertThrows(IllegalStateException.class, () -> board.resetBoard(5));
+        assertTrue(copy(board).hasFixedLayout());
+
+        Path file = directory.resolve("fixed.hxmj");
+        try (MoveJournal journal = MoveJournal.create(file, board)) {
+            journal.record(MoveType.OPEN, 9, 9);
+            board.reveal(9, 9);
+            journal.record(MoveType.FLAG, 0, 0);
+            board.flagTile(0, 0);
+        }
+
+        Replay replay = new Replay(file);
+        assertEquals(2, replay.getMoveCount());
+        assertSameBoard(board, replay.seek(2));
+        assertSameBoard(Board.fromMines(10, 10, new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, 5), replay.seek(0));
+    }
+
+    @Test
+    public void testUndoRedoRestoresBoardExactly() {
+        Board board = new Board(40, 40, 250, 8);
+        board.generate(20, 20);
+        List<Board> states = new ArrayList<>();
+        states.add(board.copy());
+
+        int zero = findZeroCell(board);
+        board.reveal(zero / board.getWidth(), zero % board.getWidth());
+        states.add(board.copy());
+        for (int i = 0; i < board.getCellCount() && states.size() < 12; i++) {
+            if (board.hasMine(i) && !board.isOpened(i)) {
+                board.flagTile(i / board.getWidth(), i % board.getWidth());
+                states.add(board.copy());
+            } else if (!board.isOpened(i) && states.size() % 3 == 0) {
+                board.flagTile(i / board.getWidth(), i % board.getWidth());
+                states.add(board.copy());
+                board.unflagTile(i / board.getWidth(), i % board.getWidth());
+                states.add(board.copy());
+            }
+        }
+        int mine = 0;
+        while (!board.hasMine(mine) || board.isFlagged(mine)) {
+            mine++;
+        }
+        RevealResult lost = board.reveal(mine / board.getWidth(), mine % board.getWidth());
+        assertEquals(GameState.LOST, board.getState());
+        states.add(board.copy());
+
+        assertArrayEquals(lost.getOpenedCells(), board.undo());
+        for (int i = states.size() - 2; i > 0; i--) {
+            assertSameBoard(states.get(i), board);
+            board.undo();
+        }
+        assertSameBoard(states.get(0), board);
+        assertFalse(board.canUndo());
+        assertEquals(0, board.undo().length);
+
+        for (int i = 1; i < states.size(); i++) {
+            board.redo();
+            assertSameBoard(states.get(i), board);
+        }
+        assertFalse(board.canRedo());
+    }
+
+    @Test
+    public void testUndoHistoryIsCapped() {
+        Board board = new Board(10, 10, 20, 2);
+        board.setUndoLimit(3);
+        for (int col = 0; col < 5; col++) {
+            board.flagTile(0, col);
+        }
+        int undone = 0;
+        while (board.canUndo()) {
+            board.undo();
+            undone++;
+        }
+        assertEquals(3, undone);
+        assertEquals(2, board.getFlaggedTilesCount());
+
+        // Новое действие после отмены сбрасывает повтор
+        board.flagTile(5, 5);
+        assertFalse(board.canRedo());
+    }
+
+    private static Board copy(Board board) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) BoardSnapshot.size(board));
+        BoardSnapshot.write(board, buffer);
+        return BoardSnapshot.read(buffer.flip());
+    }
+
+    private static void assertSameBoard(Board expected, Board actual) {
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getMines(), actual.getMines());
+        assertEquals(expected.getSeed(), actual.getSeed());
+        assertEquals(expected.getState(), actual.getState());
+        assertEquals(expected.getOpenedTilesCount(), actual.getOpenedTilesCount());
+        assertEquals(expected.getFlaggedTilesCount(), actual.getFlaggedTilesCount());
+        assertEquals(expected.getCorrectFlagsCount(), actual.getCorrectFlagsCount());
+        for (int i = 0; i < expected.getCellCount(); i++) {
+            assertEquals(expected.hasMine(i), actual.hasMine(i));
+            assertEquals(expected.isOpened(i), actual.isOpened(i));
+            assertEquals(expected.isFlagged(i), actual.isFlagged(i));
+            assertEquals(expected.getNeighborMineCount(i), actual.getNeighborMineCount(i));
+        }
+    }
+
+    @Test
+    public void testNoGuessBoardIsSolvableByLogic() {
+        NoGuessGenerator generator = new NoGuessGenerator(2, 20, 30_000_000_000L);
+        NoGuessGenerator.Result result = generator.generate(16, 30, 99, 8, 15, 3);
+        Board board = result.board();
+
+        assertEquals(99, board.getMines());
+        assertEquals(GameState.READY, board.getState());
+        assertTrue(result.attempts() >= 1);
+        assertEquals(0, board.getNeighborMineCount(board.getCellIndex(8, 15)));
+        assertFalse(board.hasMine(board.getCellIndex(8, 15)));
+        assertEquals(GameState.WON, new DeterministicSolver(board).solve(8, 15));
+    }
+
+    @Test
+    public void testSimulationDoesNotDependOnThreadCount() {
+        for (SimulationRunner.Strategy strategy : SimulationRunner.Strategy.values()) {
+            SimulationRunner.Result single = new SimulationRunner(
+                    new SimulationRunner.Config(8, 8, 10, 200, 1, 7, strategy)).run();
+            SimulationRunner.Result parallel = new SimulationRunner(
+                    new SimulationRunner.Config(8, 8, 10, 200, 4, 7, strategy)).run();
+
+            assertEquals(200, single.games());
+            assertEquals(single.wins(), parallel.wins());
+            assertEquals(single.reveals(), parallel.reveals());
+        }
+    }
+
+    @Test
+    public void testConcurrentBoardCountersMatchRecount() throws Exception {
+        Board source = new Board(128, 128, 1200, 11);
+        source.generate(64, 64);
+        ConcurrentBoard board = new ConcurrentBoard(source);
+        int threads = 8;
+        int[] openedBy = new int[board.getCellCount()];
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            Thread worker = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                try {
+                    start.await();
+                    for (int i = 0; i < 20_000; i++) {
+                        int row = random.nextInt(board.getHeight());
+                        int column = random.nextInt(board.getWidth());
+                        int roll = random.nextInt(4);
+                        if (roll == 0) {
+                            board.flagTile(row, column);
+                        } else if (roll == 1) {
+                            board.unflagTile(row, column);
+                        } else {
+                            for (int cell : board.reveal(row, column).getOpenedCells()) {
+                                synchronized (openedBy) {
+                                    openedBy[cell]++;
+                                }
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(failures.isEmpty(), failures.toString());
+
+        int opened = 0;
+        int openedSafe = 0;
+        int flagged = 0;
+        int correct = 0;
+        for (int i = 0; i < board.getCellCount(); i++) {
+            // Каждую клетку открыл ровно один каскад
+            assertEquals(board.isOpened(i) ? 1 : 0, openedBy[i]);
+            if (board.isOpened(i)) {
+                opened++;
+                if (!board.hasMine(i)) {
+                    openedSafe++;
+                }
+            }
+            if (board.isFlagged(i)) {
+                flagged++;
+                if (board.hasMine(i)) {
+                    correct++;
+                }
+            }
+        }
+        assertTrue(opened > 0);
+        assertEquals(opened, board.getOpenedTilesCount());
+        assertEquals(openedSafe, board.getOpenedSafeTilesCount());
+        assertEquals(flagged, board.getFlaggedTilesCount());
+        assertEquals(correct, board.getCorrectFlagsCount());
+        assertEquals(GameState.LOST, board.getState());
+    }
+
+    @Test
+    public void testHistogramQuantilesWithinBucketPrecision() {
+        Histogram histogram = new Histogram("test");
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000_000, histogram.getMax());
+        assertEquals(50_000_500.0, histogram.getMean(), 1e-6);
+        for (double quantile : new double[]{0.001, 0.5, 0.9, 0.99, 0.999}) {
+            double exact = Math.ceil(quantile * 100_000) * 1000;
+            long estimate = histogram.getValueAtQuantile(quantile);
+            assertTrue(estimate >= exact && estimate <= exact * (1 + 1.0 / 32), quantile + ": " + estimate);
+        }
+
+        histogram.record(3);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getP99());
+    }
+
+    @Test
+    public void testJfrSummaryCountsGameEvents(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("game.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("minesweeper.Generation").withoutThreshold();
+            recording.enable("minesweeper.Reveal").withoutThreshold();
+            recording.start();
+
+            Board board = new Board(16, 16, 40, 5);
+            board.reveal(8, 8);
+            board.reveal(8, 8); // уже открыта, каскада нет
+            board.reveal(0, 0);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, Histogram> summary = JfrSummary.durationsByType(file, false);
+        assertEquals(1, summary.get("minesweeper.Generation").getCount());
+        assertEquals(2, summary.get("minesweeper.Reveal").getCount());
+        assertTrue(summary.keySet().stream().allMatch(type -> type.startsWith("minesweeper.")));
+    }
+
+    @Test
+    public void testGameServerSendsOnlyChangedCells() throws Exception {
+        try (GameServer server = new GameServer(0, 200);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+
+            ByteBuffer response = call(in, out, ByteBuffer.allocate(29).put(Protocol.NEW_GAME).putLong(0)
+                    .putInt(16).putInt(16).putInt(40).putLong(3));
+            assertEquals(Protocol.OK, response.get());
+            long session = response.getLong();
+            assertNotEquals(0, session);
+
+            Board expected = new Board(16, 16, 40, 3);
+            RevealResult opened = expected.reveal(8, 8);
+            response = call(in, out, ByteBuffer.allocate(17).put(Protocol.OPEN).putLong(session).putInt(8).putInt(8));
+            assertEquals(Protocol.OK, response.get());
+            assertEquals(session, response.getLong());
+            assertEquals(expected.getState().ordinal(), response.get());
+            assertEquals(expected.getOpenedTilesCount(), response.getInt());
+            response.getInt();
+            assertEquals(opened.size(), response.getInt());
+            for (int i = 0; i < opened.size(); i++) {
+                int cell = response.getInt();
+                assertEquals(opened.getOpenedCells()[i], cell);
+                assertEquals(expected.getNeighborMineCount(cell), response.get());
+            }
+
+            int closed = 0;
+            while (expected.isOpened(closed)) {
+                closed++;
+            }
+            int row = closed / 16;
+            int column = closed % 16;
+            for (int attempt = 0; attempt < 2; attempt++) {
+                response = call(in, out, ByteBuffer.allocate(17).put(Protocol.FLAG).putLong(session)
+                        .putInt(row).putInt(column));
+                response.position(14);
+                assertEquals(1, response.getInt());
+                // Повторный флаг ничего не меняет и не возвращает клеток
+                assertEquals(1 - attempt, response.getInt());
+            }
+
+            response = call(in, out, ByteBuffer.allocate(9).put(Protocol.STATE).putLong(session));
+            assertEquals(Protocol.OK, response.get());
+            response.position(18);
+            assertEquals(0, response.getInt());
+
+            response = call(in, out, ByteBuffer.allocate(9).put(Protocol.STATE).putLong(session + 1000));
+            assertEquals(Protocol.UNKNOWN_SESSION, response.get());
+
+            // Простаивающая сессия удаляется
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (server.getSessionCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            response = call(in, out, ByteBuffer.allocate(9).put(Protocol.STATE).putLong(session));
+            assertEquals(Protocol.UNKNOWN_SESSION, response.get());
+        }
+    }
+
+    @Test
+    public void testGameServerLimitsSessionsAndCells() throws Exception {
+        try (GameServer server = new GameServer(0, 60_000, 2, 600);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+
+            long first = newGame(in, out, 0, 16, Protocol.OK);
+            newGame(in, out, 0, 16, Protocol.OK);
+            assertEquals(512, server.getTotalCells());
+            // Третья сессия сверх предела
+            newGame(in, out, 0, 4, Protocol.LIMIT_EXCEEDED);
+
+            // Замена доски в сессии не добавляет сессию, но клеток не хватает
+            newGame(in, out, first, 20, Protocol.LIMIT_EXCEEDED);
+            assertEquals(first, newGame(in, out, first, 8, Protocol.OK));
+            assertEquals(2, server.getSessionCount());
+            assertEquals(256 + 64, server.getTotalCells());
+
+            ByteBuffer response = call(in, out, ByteBuffer.allocate(9).put(Protocol.CLOSE).putLong(first));
+            assertEquals(Protocol.OK, response.get());
+            assertEquals(1, server.getSessionCount());
+            assertEquals(256, server.getTotalCells());
+            newGame(in, out, 0, 19, Protocol.LIMIT_EXCEEDED);
+            newGame(in, out, 0, 15, Protocol.OK);
+            assertEquals(256 + 225, server.getTotalCells());
+
+            // Кадр длиннее любого запроса закрывает соединение, память под него не выделяется
+            try (Socket other = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+                DataOutputStream otherOut = new DataOutputStream(other.getOutputStream());
+                otherOut.writeInt(1 << 26);
+                otherOut.flush();
+                assertThrows(IOException.class, () -> new DataInputStream(other.getInputStream()).readInt());
+            }
+        }
+    }
+
+    // Квадратное поле size x size; возвращает номер сессии из ответа
+    private static long newGame(DataInputStream in, DataOutputStream out, long session, int size, byte status)
+            throws IOException {
+        ByteBuffer response = call(in, out, ByteBuffer.allocate(29).put(Protocol.NEW_GAME).putLong(session)
+                .putInt(size).putInt(size).putInt(size).putLong(1));
+        assertEquals(status, response.get());
+        return response.getLong();
+    }
+
+    private static ByteBuffer call(DataInputStream in, DataOutputStream out, ByteBuffer request) throws IOException {
+        out.writeInt(request.position());
+        out.write(request.array(), 0, request.position());
+        out.flush();
+        byte[] response = new byte[in.readInt()];
+        in.readFully(response);
+        return ByteBuffer.wrap(response);
+    }
+
+    @Test
+    public void testMineProbabilitiesSumToRemainingMines() {
+        ProbabilitySolver probabilities = new ProbabilitySolver();
+
+        for (long seed = 0; seed < 20; seed++) {
+            Board board = new Board(16, 30, 99, seed);
+            int start = findZeroCell(board);
+            if (start < 0) {
+                continue;
+            }
+            GameState state = new DeterministicSolver(board).solve(start / board.getWidth(), start % board.getWidth());
+            if (state != GameState.PLAYING) {
+                continue;
+            }
+
+            double[] result = probabilities.mineProbabilities(board);
+            double closedSum = 0;
+            for (int cell = 0; cell < board.getCellCount(); cell++) {
+                assertTrue(result[cell] >= -1e-9 && result[cell] <= 1 + 1e-9);
+                if (board.isOpened(cell)) {
+                    assertEquals(0, result[cell]);
+                } else if (!board.isFlagged(cell)) {
+                    closedSum += result[cell];
+                }
+            }
+            assertEquals(board.getMines() - board.getFlaggedTilesCount(), closedSum, 1e-6);
+
+            int guess = probabilities.bestGuess(board);
+            assertFalse(board.isOpened(guess) || board.isFlagged(guess));
+        }
+    }
+
+    @Test
+    public void testProbabilitiesStayFiniteWithManyComponents() {
+        // 400 открытых клеток далеко друг от друга: 400 независимых компонент по ~20 решений,
+        // произведение чисел решений далеко за пределами double
+        int size = 80;
+        SplittableRandom random = new SplittableRandom(1);
+        boolean[] probe = new boolean[size * size];
+        for (int row = 1; row < size; row += 4) {
+            for (int column = 1; column < size; column += 4) {
+                probe[row * size + column] = true;
+            }
+        }
+        List<Integer> mines = new ArrayList<>();
+        for (int cell = 0; cell < probe.length; cell++) {
+            if (!probe[cell] && random.nextBoolean()) {
+                mines.add(cell);
+            }
+        }
+        Board board = Board.fromMines(size, size, mines.stream().mapToInt(Integer::intValue).toArray(), 1);
+        for (int cell = 0; cell < probe.length; cell++) {
+            if (probe[cell]) {
+                board.reveal(cell / size, cell % size);
+            }
+        }
+
+        double[] probabilities = new ProbabilitySolver().mineProbabilities(board);
+        double expectedMines = 0;
+        for (int cell = 0; cell < probabilities.length; cell++) {
+            assertTrue(probabilities[cell] >= 0 && probabilities[cell] <= 1, "клетка " + cell + ": " + probabilities[cell]);
+            expectedMines += probabilities[cell];
+        }
+        assertEquals(board.getMines(), expectedMines, 1e-6 * board.getMines());
+    }
+
+    @Test
+    public void testSampledProbabilitiesApproachExact() {
+        ProbabilitySolver exact = new ProbabilitySolver();
+        // Ни одна компонента не перебирается точно, все оцениваются выборкой
+        ProbabilitySolver sampled = new ProbabilitySolver(ForkJoinPool.commonPool(), 0, 1 << 20);
+        int compared = 0;
+
+        for (long seed = 0; seed < 20; seed++) {
+            Board board = new Board(16, 30, 99, seed);
+            int start = findZeroCell(board);
+            if (start < 0 || new DeterministicSolver(board).solve(start / board.getWidth(),
+                    start % board.getWidth()) != GameState.PLAYING) {
+                continue;
+            }
+
+            double[] expected = exact.mineProbabilities(board);
+            double[] actual = sampled.mineProbabilities(board);
+            for (int cell = 0; cell < board.getCellCount(); cell++) {
+                assertEquals(expected[cell], actual[cell], 0.05, "seed " + seed + ", cell " + cell);
+            }
+            compared++;
+        }
+        assertTrue(compared > 0);
+    }
+
+    // Расставляет мины, если их ещё нет, и ищет клетку без мин вокруг
+    private int findZeroCell(Board board) {
+        board.generate(board.getHeight() / 2, board.getWidth() / 2);
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            if (!board.hasMine(cell) && board.getNeighborMineCount(cell) == 0) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
     @Test
     public void testWinCase() {
         Board board = new Board(8, 8, 10);
@@ -156,6 +1157,72 @@ public class MinesweeperTest {
         assertTrue(board.getResult());
     }
 
+    @Test
+    public void testGameStateTransitions() {
+        Board board = new Board(16, 16, 40);
+        assertEquals(GameState.READY, board.getState());
+
+        boolean mineOpened = false;
+        for (int row = 0; row < board.getHeight() && !mineOpened; row++) {
+            for (int col = 0; col < board.getWidth(); col++) {
+                if (board.getTile(row, col).hasMine()) {
+                    board.openTile(row, col);
+                    mineOpened = true;
+                    break;
+                }
+                board.openTile(row, col);
+                assertEquals(GameState.PLAYING, board.getState());
+            }
+        }
+
+        assertEquals(GameState.LOST, board.getState());
+        assertFalse(board.getResult());
+        board.openAll();
+        assertEquals(GameState.LOST, board.getState());
+
+        board.resetBoard();
+        assertEquals(GameState.READY, board.getState());
+    }
+
+    @Test
+    public void testWinWithoutFlags() {
+        Board board = new Board(8, 8, 10);
+
+        for (int row = 0; row < board.getHeight(); row++) {
+            for (int col = 0; col < board.getWidth(); col++) {
+                if (!board.getTile(row, col).hasMine()) {
+                    assertFalse(board.getResult());
+                    board.openTile(row, col);
+                }
+            }
+        }
+
+        assertEquals(GameState.WON, board.getState());
+        assertTrue(board.getResult());
+        assertEquals(0, board.getFlaggedTilesCount());
+    }
+
+    @Test
+    public void testFlaggingTwiceCountsOnce() {
+        Board board = new Board(8, 8, 10);
+
+        for (int row = 0; row < board.getHeight(); row++) {
+            for (int col = 0; col < board.getWidth(); col++) {
+                if (board.getTile(row, col).hasMine()) {
+                    board.flagTile(row, col);
+                    board.flagTile(row, col);
+                    assertEquals(1, board.getFlaggedTilesCount());
+                    assertEquals(1, board.getCorrectFlagsCount());
+
+                    board.unflagTile(row, col);
+                    assertEquals(0, board.getFlaggedTilesCount());
+                    assertEquals(0, board.getCorrectFlagsCount());
+                    return;
+                }
+            }
+        }
+    }
+
     @Test
     public void testOpenAllTiles() {
         int rows = 8;